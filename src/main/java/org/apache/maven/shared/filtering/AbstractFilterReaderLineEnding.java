@@ -19,6 +19,7 @@
 package org.apache.maven.shared.filtering;
 
 import java.io.FilterReader;
+import java.io.IOException;
 import java.io.Reader;
 import java.util.LinkedHashSet;
 
@@ -87,6 +88,26 @@ public abstract class AbstractFilterReaderLineEnding extends FilterReader {
         this.preserveEscapeString = preserveEscapeString;
     }
 
+    /**
+     * The filtered stream is read ahead in an internal buffer, mark/reset is not supported.
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
     protected void calculateMarkLength() {
         // CHECKSTYLE_OFF: MagicNumber
         markLength = 255;
@@ -83,6 +83,14 @@ public class AbstractMavenFilteringRequest {
 
     private Consumer<Interpolator> interpolatorCustomizer;
 
+    private ExpressionCache expressionCache;
+
+    private SegmentCache segmentCache;
+
+    private FilteringMetrics metrics;
+
+    private FilteringListener filteringListener;
+
     /**
      * Create instance.
      */
@@ -352,6 +360,8 @@ public class AbstractMavenFilteringRequest {
     }
 
     /**
+     * The filters based on {@link BaseFilter} create their interpolators once and reuse them for all the files, so the
+     * customizer is called once per interpolator, not once per file.
      *
      * @param interpolatorCustomizer the customizer which is supposed to be used by filters creating an {@link Interpolator} like those based on {@link BaseFilter}.
      * @since 4.0.0-beta-2
@@ -359,4 +369,84 @@ public class AbstractMavenFilteringRequest {
     public void setInterpolatorCustomizer(Consumer<Interpolator> interpolatorCustomizer) {
         this.interpolatorCustomizer = interpolatorCustomizer;
     }
+
+    /**
+     * @return the cache of the values resolved for expressions, {@code null} for a new cache per call of
+     *         {@link DefaultFilterInfo#getDefaultFilterWrappers(AbstractMavenFilteringRequest)}
+     * @since 4.0.0-beta-2
+     */
+    public ExpressionCache getExpressionCache() {
+        return expressionCache;
+    }
+
+    /**
+     * Set the cache of the values resolved for expressions by the filters based on {@link BaseFilter}. Giving the same
+     * instance to several requests, for instance to all the requests of a session, shares it between them.
+     *
+     * @param expressionCache the cache, {@code null} for a new cache per call of
+     *            {@link DefaultFilterInfo#getDefaultFilterWrappers(AbstractMavenFilteringRequest)}
+     * @since 4.0.0-beta-2
+     */
+    public void setExpressionCache(ExpressionCache expressionCache) {
+        this.expressionCache = expressionCache;
+    }
+
+    /**
+     * @return the cache of the segments of the filtered files, {@code null} for none
+     * @since 4.0.0-beta-2
+     */
+    public SegmentCache getSegmentCache() {
+        return segmentCache;
+    }
+
+    /**
+     * Set the cache of the segments of the files filtered by the filters based on {@link BaseFilter}. Once a file has
+     * been filtered, filtering it again with the same content and configuration only filters again its segments whose
+     * expressions have changed values. Giving the same instance to several requests shares it between them.
+     *
+     * @param segmentCache the cache, {@code null} for none
+     * @since 4.0.0-beta-2
+     */
+    public void setSegmentCache(SegmentCache segmentCache) {
+        this.segmentCache = segmentCache;
+    }
+
+    /**
+     * @return where the metrics of the filtering are collected, {@code null} if they are not
+     * @since 4.0.0-beta-2
+     */
+    public FilteringMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set where to collect the metrics of the filtering: the files, the bytes and the time spent by the resources
+     * filtering, and the expressions resolved by the filters based on {@link BaseFilter}. Giving the same instance to
+     * several requests adds up their metrics.
+     *
+     * @param metrics the metrics, {@code null} not to collect them
+     * @since 4.0.0-beta-2
+     */
+    public void setMetrics(FilteringMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return whom to tell what the filtering does, {@code null} for none
+     * @since 4.0.0-beta-2
+     */
+    public FilteringListener getFilteringListener() {
+        return filteringListener;
+    }
+
+    /**
+     * Set whom to tell what the filtering does: the files copied and skipped by the resources filtering, and the
+     * expressions looked up by the filters based on {@link BaseFilter} with the value sources answering them.
+     *
+     * @param filteringListener the listener, {@code null} for none
+     * @since 4.0.0-beta-2
+     */
+    public void setFilteringListener(FilteringListener filteringListener) {
+        this.filteringListener = filteringListener;
+    }
 }
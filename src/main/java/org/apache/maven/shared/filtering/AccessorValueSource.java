@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.plexus.interpolation.PrefixedObjectValueSource;
+import org.codehaus.plexus.interpolation.ValueSource;
+import org.codehaus.plexus.interpolation.util.StringUtils;
+import org.codehaus.plexus.interpolation.util.ValueSourceUtils;
+
+/**
+ * Resolves the same expressions as a {@link PrefixedObjectValueSource}, but each distinct dotted path, such as
+ * {@code build.finalName}, is compiled once into a chain of {@link MethodHandle}s to the {@code getXxx()} or
+ * {@code isXxx()} accessors instead of being looked up by reflection on every call. The handles are cached per runtime
+ * class, and each step of a path remembers the last class it was called on.
+ * <p>
+ * Paths with indexed or mapped properties, accessors which are not public, and accessors throwing an exception are
+ * left to a {@link PrefixedObjectValueSource}, which also provides the feedback.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class AccessorValueSource implements ValueSource {
+
+    /**
+     * Bounds the number of compiled paths, the other ones are compiled on every call.
+     */
+    private static final int MAXIMUM_PATHS = 10000;
+
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * The accessor of a property which does not exist: its value is {@code null}.
+     */
+    private static final MethodHandle NO_ACCESSOR =
+            MethodHandles.dropArguments(MethodHandles.constant(Object.class, null), 0, Object.class);
+
+    /**
+     * The accessor of a property which cannot be called through a method handle.
+     */
+    private static final MethodHandle UNSUPPORTED =
+            MethodHandles.dropArguments(MethodHandles.constant(Object.class, null), 0, Object.class);
+
+    /**
+     * Returned by a path which must be resolved by reflection.
+     */
+    private static final Object FALLBACK = new Object();
+
+    private static final Path NOT_COMPILED = new Path(null);
+
+    private static final ConcurrentMap<String, Path> PATHS = new ConcurrentHashMap<>();
+
+    private static final ClassValue<ConcurrentMap<String, MethodHandle>> ACCESSORS =
+            new ClassValue<ConcurrentMap<String, MethodHandle>>() {
+                @Override
+                protected ConcurrentMap<String, MethodHandle> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private final PrefixedObjectValueSource fallback;
+
+    private final String[] prefixes;
+
+    private final boolean allowUnprefixed;
+
+    private final Object root;
+
+    private final boolean unwrapOptional;
+
+    /**
+     * @param prefixes the prefixes of the expressions
+     * @param root the object the expressions are resolved against
+     * @param allowUnprefixed if expressions without any of the prefixes are resolved as well
+     * @param unwrapOptional if an {@link Optional} value is replaced by its content
+     */
+    AccessorValueSource(List<String> prefixes, Object root, boolean allowUnprefixed, boolean unwrapOptional) {
+        this.fallback = new PrefixedObjectValueSource(prefixes, root, allowUnprefixed);
+        this.prefixes = prefixes.toArray(new String[0]);
+        this.allowUnprefixed = allowUnprefixed;
+        this.root = root;
+        this.unwrapOptional = unwrapOptional;
+    }
+
+    @Override
+    public Object getValue(String expression) {
+        Object value = resolve(expression);
+        if (unwrapOptional && value instanceof Optional) {
+            value = ((Optional<?>) value).orElse(null);
+        }
+        return value;
+    }
+
+    private Object resolve(String expression) {
+        String path = ValueSourceUtils.trimPrefix(expression, prefixes, allowUnprefixed);
+        if (path == null) {
+            return null;
+        }
+        Path compiled = PATHS.get(path);
+        if (compiled == null) {
+            compiled = Path.compile(path);
+            if (PATHS.size() < MAXIMUM_PATHS) {
+                PATHS.putIfAbsent(path, compiled);
+            }
+        }
+        Object value = compiled == NOT_COMPILED ? FALLBACK : compiled.evaluate(root);
+        return value == FALLBACK ? fallback.getValue(expression) : value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object> getFeedback() {
+        return fallback.getFeedback();
+    }
+
+    @Override
+    public void clearFeedback() {
+        fallback.clearFeedback();
+    }
+
+    /**
+     * @return the accessor of the property, {@link #NO_ACCESSOR} or {@link #UNSUPPORTED}
+     */
+    private static MethodHandle findAccessor(Class<?> type, String property) {
+        String methodBase = StringUtils.capitalizeFirstLetter(property);
+        Method method = findMethod(type, "get" + methodBase);
+        if (method == null) {
+            method = findMethod(type, "is" + methodBase);
+        }
+        if (method == null) {
+            return NO_ACCESSOR;
+        }
+        method = findPublicMethod(type, method);
+        if (method == null || Modifier.isStatic(method.getModifiers())) {
+            return UNSUPPORTED;
+        }
+        try {
+            return MethodHandles.publicLookup().unreflect(method).asType(ACCESSOR_TYPE);
+        } catch (IllegalAccessException e) {
+            return UNSUPPORTED;
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the method, or the same method declared by a public class or interface, {@code null} if there is none
+     */
+    private static Method findPublicMethod(Class<?> type, Method method) {
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return method;
+        }
+        Deque<Class<?>> types = new ArrayDeque<>();
+        types.add(type);
+        while (!types.isEmpty()) {
+            Class<?> superType = types.poll();
+            if (Modifier.isPublic(superType.getModifiers())) {
+                Method found = findMethod(superType, method.getName());
+                if (found != null && Modifier.isPublic(found.getDeclaringClass().getModifiers())) {
+                    return found;
+                }
+            }
+            if (superType.getSuperclass() != null) {
+                types.add(superType.getSuperclass());
+            }
+            types.addAll(Arrays.asList(superType.getInterfaces()));
+        }
+        return null;
+    }
+
+    /**
+     * A compiled dotted path.
+     */
+    private static final class Path {
+
+        private final Step[] steps;
+
+        private Path(Step[] steps) {
+            this.steps = steps;
+        }
+
+        /**
+         * @return the path, or {@link #NOT_COMPILED} if it is not only made of property names
+         */
+        static Path compile(String path) {
+            if (path.isEmpty() || !Character.isJavaIdentifierStart(path.charAt(0))) {
+                return NOT_COMPILED;
+            }
+            String[] properties = path.split("\\.", -1);
+            Step[] steps = new Step[properties.length];
+            for (int i = 0; i < properties.length; i++) {
+                String property = properties[i];
+                if (property.isEmpty()) {
+                    return NOT_COMPILED;
+                }
+                for (int j = 0; j < property.length(); j++) {
+                    if (!Character.isJavaIdentifierPart(property.charAt(j))) {
+                        return NOT_COMPILED;
+                    }
+                }
+                steps[i] = new Step(property);
+            }
+            return new Path(steps);
+        }
+
+        /**
+         * @return the value, or {@link #FALLBACK} if it must be resolved by reflection
+         */
+        Object evaluate(Object root) {
+            Object value = root;
+            for (Step step : steps) {
+                if (value == null) {
+                    return null;
+                }
+                MethodHandle accessor = step.getAccessor(value.getClass());
+                if (accessor == UNSUPPORTED) {
+                    return FALLBACK;
+                }
+                try {
+                    value = (Object) accessor.invokeExact(value);
+                } catch (Throwable e) {
+                    // reported by the reflective lookup
+                    return FALLBACK;
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A property of a path, with the accessor for the last class it was called on.
+     */
+    private static final class Step {
+
+        private final String property;
+
+        private volatile Target last;
+
+        Step(String property) {
+            this.property = property;
+        }
+
+        MethodHandle getAccessor(Class<?> type) {
+            Target target = last;
+            if (target == null || target.type != type) {
+                MethodHandle accessor = ACCESSORS.get(type).computeIfAbsent(property, p -> findAccessor(type, p));
+                target = new Target(type, accessor);
+                last = target;
+            }
+            return target.accessor;
+        }
+    }
+
+    private static final class Target {
+
+        private final Class<?> type;
+
+        private final MethodHandle accessor;
+
+        Target(Class<?> type, MethodHandle accessor) {
+            this.type = type;
+            this.accessor = accessor;
+        }
+    }
+}
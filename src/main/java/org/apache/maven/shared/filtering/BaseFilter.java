@@ -23,20 +23,21 @@ import java.io.Reader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
-import java.util.TreeSet;
 import java.util.function.Consumer;
 
 import org.apache.maven.api.Project;
 import org.apache.maven.api.Session;
 import org.apache.maven.api.settings.Settings;
+import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.Interpolator;
 import org.codehaus.plexus.interpolation.PrefixAwareRecursionInterceptor;
-import org.codehaus.plexus.interpolation.PrefixedObjectValueSource;
-import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
 import org.codehaus.plexus.interpolation.RecursionInterceptor;
 import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
 import org.codehaus.plexus.interpolation.SingleResponseValueSource;
@@ -80,37 +81,9 @@ class BaseFilter implements DefaultFilterInfo {
 
         request.setSupportMultiLineFiltering(supportMultiLineFiltering);
 
-        // Here we build some properties which will be used to read some properties files
-        // to interpolate the expression ${ } in this properties file
-
-        // Take a copy of filterProperties to ensure that evaluated filterTokens are not propagated
-        // to subsequent filter files. Note: this replicates current behaviour and seems to make sense.
-
-        final Properties baseProps = new Properties();
-
-        // Project properties
-        if (request.getMavenProject() != null) {
-            baseProps.putAll(request.getMavenProject().getModel().getProperties());
-        }
-        // TODO this is NPE free but do we consider this as normal
-        // or do we have to throw an MavenFilteringException with mavenSession cannot be null
-        //
-        // khmarbaise: 2016-05-21:
-        // If we throw an MavenFilteringException tests will fail which is
-        // caused by for example:
-        // void copyFile( File from, final File to, boolean filtering, List<FileUtils.FilterWrapper> filterWrappers,
-        // String encoding )
-        // in MavenFileFilter interface where no MavenSession is given.
-        // So changing here to throw a MavenFilteringException would make
-        // it necessary to change the interface or we need to find a better solution.
-        //
-        if (request.getMavenSession() != null) {
-            // User properties have precedence over system properties
-            baseProps.putAll(request.getMavenSession().getSystemProperties());
-            baseProps.putAll(request.getMavenSession().getUserProperties());
-        }
-
-        // now we build properties to use for resources interpolation
+        // now we build properties to use for resources interpolation: the properties loaded from the filter files,
+        // overridden by the model properties, the system properties, the user properties and the additional
+        // properties, looked up in this order rather than copied into one another
 
         final Properties filterProperties = new Properties();
 
@@ -118,66 +91,107 @@ class BaseFilter implements DefaultFilterInfo {
                 .map(Project::getBasedir)
                 .orElseGet(() -> Paths.get("."));
 
-        loadProperties(filterProperties, basedir, request.getFileFilters(), baseProps);
-        if (filterProperties.isEmpty()) {
-            filterProperties.putAll(baseProps);
+        List<String> buildFilters = null;
+        if (request.getMavenProject() != null && request.isInjectProjectBuildFilters()) {
+            buildFilters = new ArrayList<>(request.getMavenProject().getBuild().getFilters());
+
+            // JDK-8015656: (coll) unexpected NPE from removeAll
+            if (request.getFileFilters() != null) {
+                buildFilters.removeAll(request.getFileFilters());
+            }
         }
 
-        if (request.getMavenProject() != null) {
-            if (request.isInjectProjectBuildFilters()) {
-                List<String> buildFilters =
-                        new ArrayList<>(request.getMavenProject().getBuild().getFilters());
+        if (hasFilterFile(request.getFileFilters()) || hasFilterFile(buildFilters)) {
+            // Here we build some properties which will be used to read some properties files
+            // to interpolate the expression ${ } in this properties file
 
-                // JDK-8015656: (coll) unexpected NPE from removeAll
-                if (request.getFileFilters() != null) {
-                    buildFilters.removeAll(request.getFileFilters());
-                }
+            // Take a copy of filterProperties to ensure that evaluated filterTokens are not propagated
+            // to subsequent filter files. Note: this replicates current behaviour and seems to make sense.
+            final Properties baseProps = new Properties();
 
-                loadProperties(filterProperties, basedir, buildFilters, baseProps);
+            // Project properties
+            if (request.getMavenProject() != null) {
+                baseProps.putAll(request.getMavenProject().getModel().getProperties());
+            }
+            // TODO this is NPE free but do we consider this as normal
+            // or do we have to throw an MavenFilteringException with mavenSession cannot be null
+            //
+            // khmarbaise: 2016-05-21:
+            // If we throw an MavenFilteringException tests will fail which is
+            // caused by for example:
+            // void copyFile( File from, final File to, boolean filtering, List<FileUtils.FilterWrapper> filterWrappers,
+            // String encoding )
+            // in MavenFileFilter interface where no MavenSession is given.
+            // So changing here to throw a MavenFilteringException would make
+            // it necessary to change the interface or we need to find a better solution.
+            //
+            if (request.getMavenSession() != null) {
+                // User properties have precedence over system properties
+                baseProps.putAll(request.getMavenSession().getSystemProperties());
+                baseProps.putAll(request.getMavenSession().getUserProperties());
             }
 
-            // Project properties
-            filterProperties.putAll(request.getMavenProject().getModel().getProperties());
-        }
-        if (request.getMavenSession() != null) {
-            // User properties have precedence over system properties
-            filterProperties.putAll(request.getMavenSession().getSystemProperties());
-            filterProperties.putAll(request.getMavenSession().getUserProperties());
+            loadProperties(filterProperties, basedir, request.getFileFilters(), baseProps);
+            loadProperties(filterProperties, basedir, buildFilters, baseProps);
         }
 
-        if (request.getAdditionalProperties() != null) {
-            // additional properties wins
-            filterProperties.putAll(request.getAdditionalProperties());
-        }
+        // additional properties wins, user properties have precedence over system properties
+        // the Properties are frozen, for the filtering threads not to contend for their locks, the other maps come
+        // immutable from the API
+        final LayeredPropertiesValueSource properties = new LayeredPropertiesValueSource(
+                PropertiesSnapshot.of(request.getAdditionalProperties()),
+                request.getMavenSession() != null ? request.getMavenSession().getUserProperties() : null,
+                request.getMavenSession() != null ? request.getMavenSession().getSystemProperties() : null,
+                request.getMavenProject() != null ? request.getMavenProject().getModel().getProperties() : null,
+                PropertiesSnapshot.of(filterProperties));
 
         List<FilterWrapper> defaultFilterWrappers =
                 new ArrayList<>(request.getDelimiters().size() + 1);
 
         if (getLogger().isDebugEnabled()) {
             getLogger().debug("properties used:");
-            for (String s : new TreeSet<>(filterProperties.stringPropertyNames())) {
-                getLogger().debug(s + ": " + filterProperties.getProperty(s));
+            for (String s : properties.stringPropertyNames()) {
+                getLogger().debug(s + ": " + properties.getProperty(s));
             }
         }
 
-        final ValueSource propertiesValueSource = new PropertiesBasedValueSource(filterProperties);
+        // a new cache for each execution, unless the request shares one
+        ExpressionCache expressionCache =
+                request.getExpressionCache() != null
+                        ? request.getExpressionCache()
+                        : new ExpressionCache(ExpressionCache.DEFAULT_MAXIMUM_SIZE, false);
 
         FilterWrapper wrapper = new Wrapper(
                 request.getDelimiters(),
                 request.getMavenProject(),
                 request.getMavenSession(),
-                propertiesValueSource,
+                properties,
+                expressionCache,
                 request.getProjectStartExpressions(),
                 request.getEscapeString(),
                 request.isEscapeWindowsPaths(),
                 request.isSupportMultiLineFiltering(),
-                request.getInterpolatorCustomizer());
+                request.getInterpolatorCustomizer(),
+                request.getSegmentCache(),
+                request.getMetrics(),
+                request.getFilteringListener());
 
         defaultFilterWrappers.add(wrapper);
 
         return defaultFilterWrappers;
     }
 
+    private static boolean hasFilterFile(List<String> propertiesFilePaths) {
+        if (propertiesFilePaths != null) {
+            for (String filterFile : propertiesFilePaths) {
+                if (filterFile != null && !filterFile.trim().isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * default visibility only for testing reason !
      */
@@ -205,13 +219,15 @@ class BaseFilter implements DefaultFilterInfo {
         }
     }
 
-    private static final class Wrapper extends FilterWrapper {
+    private static final class Wrapper extends FilterWrapper implements RecordingFilterWrapper {
 
         private final LinkedHashSet<String> delimiters;
 
         private final Project project;
 
-        private final ValueSource propertiesValueSource;
+        private final LayeredPropertiesValueSource properties;
+
+        private final ExpressionCache expressionCache;
 
         private final List<String> projectStartExpressions;
 
@@ -225,103 +241,215 @@ class BaseFilter implements DefaultFilterInfo {
 
         private final Consumer<Interpolator> interpolatorCustomizer;
 
+        private final SegmentCache segmentCache;
+
+        private final FilteringMetrics metrics;
+
+        private final DelimiterMatcher delimiterMatcher;
+
+        /**
+         * Shared by all the files, the interpolators being created on demand and reused.
+         */
+        private final PooledInterpolator interpolator;
+
         Wrapper(
                 LinkedHashSet<String> delimiters,
                 Project project,
                 Session mavenSession,
-                ValueSource propertiesValueSource,
+                LayeredPropertiesValueSource properties,
+                ExpressionCache expressionCache,
                 List<String> projectStartExpressions,
                 String escapeString,
                 boolean escapeWindowsPaths,
                 boolean supportMultiLineFiltering,
-                Consumer<Interpolator> interpolatorCustomizer) {
+                Consumer<Interpolator> interpolatorCustomizer,
+                SegmentCache segmentCache,
+                FilteringMetrics metrics,
+                FilteringListener listener) {
             super();
             this.delimiters = delimiters;
             this.project = project;
             this.mavenSession = mavenSession;
-            this.propertiesValueSource = propertiesValueSource;
+            this.properties = properties;
+            this.expressionCache = expressionCache;
             this.projectStartExpressions = projectStartExpressions;
             this.escapeString = escapeString;
             this.escapeWindowsPaths = escapeWindowsPaths;
             this.supportMultiLineFiltering = supportMultiLineFiltering;
             this.interpolatorCustomizer = interpolatorCustomizer;
+            this.segmentCache = segmentCache;
+            this.metrics = metrics;
+            this.delimiterMatcher = DelimiterMatcher.compile(delimiters, escapeString, supportMultiLineFiltering);
+            this.interpolator = new PooledInterpolator(this::newInterpolator, metrics, listener);
         }
 
-        @Override
-        public Reader getReader(Reader reader) {
+        /**
+         * @param wrapper the wrapper to filter like
+         * @param interpolator the interpolator of the readers, from the pool of the wrapper
+         */
+        private Wrapper(Wrapper wrapper, PooledInterpolator interpolator) {
+            this.delimiters = wrapper.delimiters;
+            this.project = wrapper.project;
+            this.mavenSession = wrapper.mavenSession;
+            this.properties = wrapper.properties;
+            this.expressionCache = wrapper.expressionCache;
+            this.projectStartExpressions = wrapper.projectStartExpressions;
+            this.escapeString = wrapper.escapeString;
+            this.escapeWindowsPaths = wrapper.escapeWindowsPaths;
+            this.supportMultiLineFiltering = wrapper.supportMultiLineFiltering;
+            this.interpolatorCustomizer = wrapper.interpolatorCustomizer;
+            this.segmentCache = wrapper.segmentCache;
+            this.metrics = wrapper.metrics;
+            this.delimiterMatcher = wrapper.delimiterMatcher;
+            this.interpolator = interpolator;
+        }
+
+        /**
+         * @param lookups whom the value sources tell about each expression they are asked for, {@code null} for none
+         * @return a new interpolator for the pool
+         */
+        private Interpolator newInterpolator(FilteringListener lookups) {
             Interpolator interpolator = createInterpolator(
                     delimiters,
                     projectStartExpressions,
-                    propertiesValueSource,
+                    properties,
+                    expressionCache,
                     project,
                     mavenSession,
                     escapeString,
-                    escapeWindowsPaths);
+                    escapeWindowsPaths,
+                    metrics,
+                    lookups);
             if (interpolatorCustomizer != null) {
                 interpolatorCustomizer.accept(interpolator);
             }
+            interpolator.setCacheAnswers(true);
+            return interpolator;
+        }
 
-            MultiDelimiterInterpolatorFilterReaderLineEnding filterReader =
-                    new MultiDelimiterInterpolatorFilterReaderLineEnding(
-                            reader, interpolator, supportMultiLineFiltering);
-
-            final RecursionInterceptor ri;
+        private RecursionInterceptor newRecursionInterceptor() {
             if (projectStartExpressions != null && !projectStartExpressions.isEmpty()) {
-                ri = new PrefixAwareRecursionInterceptor(projectStartExpressions, true);
+                return new PrefixAwareRecursionInterceptor(projectStartExpressions, true);
             } else {
-                ri = new SimpleRecursionInterceptor();
+                return new SimpleRecursionInterceptor();
             }
+        }
 
-            filterReader.setRecursionInterceptor(ri);
+        @Override
+        public Reader getReader(Reader reader) {
+            MultiDelimiterInterpolatorFilterReaderLineEnding filterReader =
+                    new MultiDelimiterInterpolatorFilterReaderLineEnding(
+                            reader, interpolator, supportMultiLineFiltering);
+
+            filterReader.setRecursionInterceptor(newRecursionInterceptor());
             filterReader.setDelimiterSpecs(delimiters);
 
             filterReader.setInterpolateWithPrefixPattern(false);
             filterReader.setEscapeString(escapeString);
+            filterReader.setDelimiterMatcher(delimiterMatcher);
 
             return filterReader;
         }
+
+        @Override
+        DelimiterMatcher getDelimiterMatcher() {
+            return delimiterMatcher;
+        }
+
+        @Override
+        int getLookaheadLimit() {
+            // never less than the mark length the reader computes from the default specification, the delimiters
+            // and the escape string
+            // CHECKSTYLE_OFF: MagicNumber
+            int limit = 255 + 3;
+            // CHECKSTYLE_ON: MagicNumber
+            if (escapeString != null) {
+                limit += escapeString.length();
+            }
+            for (String delimiter : delimiters) {
+                limit += delimiter.length() * 2;
+            }
+            return limit;
+        }
+
+        /**
+         * The values of the expressions are those of the properties, the project, the session and the settings: how
+         * they are found depends on the project start expressions. An interpolator customizer is a black box.
+         */
+        @Override
+        public String getConfiguration() {
+            if (interpolatorCustomizer != null) {
+                return null;
+            }
+            return getClass().getName() + " delimiters=" + delimiters + " escapeString=" + escapeString
+                    + " escapeWindowsPaths=" + escapeWindowsPaths + " supportMultiLineFiltering="
+                    + supportMultiLineFiltering + " projectStartExpressions=" + projectStartExpressions;
+        }
+
+        @Override
+        public FilterWrapper recording(Map<String, String> expressions) {
+            return new Wrapper(this, interpolator.recordingInto(expressions));
+        }
+
+        @Override
+        public String resolve(String expression) {
+            try {
+                return interpolator.interpolate(expression, newRecursionInterceptor());
+            } catch (InterpolationException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        @Override
+        SegmentCache getSegmentCache() {
+            return segmentCache;
+        }
     }
 
     private static Interpolator createInterpolator(
             LinkedHashSet<String> delimiters,
             List<String> projectStartExpressions,
-            ValueSource propertiesValueSource,
+            LayeredPropertiesValueSource properties,
+            ExpressionCache expressionCache,
             Project project,
             Session mavenSession,
             String escapeString,
-            boolean escapeWindowsPaths) {
+            boolean escapeWindowsPaths,
+            FilteringMetrics metrics,
+            FilteringListener listener) {
         MultiDelimiterStringSearchInterpolator interpolator = new MultiDelimiterStringSearchInterpolator();
         interpolator.setDelimiterSpecs(delimiters);
 
-        interpolator.addValueSource(propertiesValueSource);
+        Map<String, ValueSource> valueSources = new LinkedHashMap<>();
+        valueSources.put(FilteringListener.PROPERTIES, properties);
 
         if (project != null) {
-            for (Object root : new Object[] {project, project.getModel()}) {
-                interpolator.addValueSource(new PrefixedObjectValueSource(projectStartExpressions, root, true) {
-                    @Override
-                    public Object getValue(String expression) {
-                        Object value = super.getValue(expression);
-                        if (value instanceof Optional) {
-                            //noinspection unchecked
-                            value = ((Optional) value).orElse(null);
-                        }
-                        return value;
-                    }
-                });
-            }
+            valueSources.put(
+                    FilteringListener.PROJECT, new AccessorValueSource(projectStartExpressions, project, true, true));
+            valueSources.put(
+                    FilteringListener.MODEL,
+                    new AccessorValueSource(projectStartExpressions, project.getModel(), true, true));
         }
 
         if (mavenSession != null) {
-            interpolator.addValueSource(new PrefixedObjectValueSource("session", mavenSession));
+            valueSources.put(
+                    FilteringListener.SESSION,
+                    new AccessorValueSource(Collections.singletonList("session"), mavenSession, false, false));
 
             final Settings settings = mavenSession.getSettings();
             if (settings != null) {
-                interpolator.addValueSource(new PrefixedObjectValueSource("settings", settings));
-                interpolator.addValueSource(
+                valueSources.put(
+                        FilteringListener.SETTINGS,
+                        new AccessorValueSource(Collections.singletonList("settings"), settings, false, false));
+                valueSources.put(
+                        FilteringListener.LOCAL_REPOSITORY,
                         new SingleResponseValueSource("localRepository", settings.getLocalRepository()));
             }
         }
 
+        interpolator.addValueSource(expressionCache.cache(
+                project, mavenSession, properties, projectStartExpressions, valueSources, metrics, listener));
+
         interpolator.setEscapeString(escapeString);
 
         if (escapeWindowsPaths) {
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tells binary files from text files by their first block, the way version control systems do: a text file encoded
+ * with a charset where a new line is a single byte has no NUL byte. A few binary formats are also recognized by their
+ * magic number, their first block not always having a NUL byte.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class BinaryContent {
+
+    /**
+     * The number of bytes looked at.
+     */
+    static final int BLOCK_SIZE = 8000;
+
+    private static final byte[][] MAGIC_NUMBERS = {
+        // PNG
+        {(byte) 0x89, 'P', 'N', 'G'},
+        // GIF, with its version not to mistake text for it
+        {'G', 'I', 'F', '8', '7', 'a'},
+        {'G', 'I', 'F', '8', '9', 'a'},
+        // JPEG
+        {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+        // ZIP, JAR
+        {'P', 'K', 3, 4},
+        // GZIP
+        {0x1F, (byte) 0x8B},
+        // 7z
+        {'7', 'z', (byte) 0xBC, (byte) 0xAF},
+        // class
+        {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE},
+        // PDF
+        {'%', 'P', 'D', 'F', '-'},
+        // WOFF, WOFF2
+        {'w', 'O', 'F', 'F'},
+        {'w', 'O', 'F', '2'},
+    };
+
+    private BinaryContent() {
+        // no instance
+    }
+
+    /**
+     * @param file the file to look at
+     * @param charset the charset of the file if it is a text file
+     * @return {@code true} if the file looks binary
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isBinary(Path file, Charset charset) throws IOException {
+        byte[] block;
+        try (InputStream in = Files.newInputStream(file)) {
+            block = in.readNBytes(BLOCK_SIZE);
+        }
+        return isBinary(block, charset);
+    }
+
+    /**
+     * @param block the first bytes of a file
+     * @param charset the charset of the file if it is a text file
+     * @return {@code true} if the file looks binary
+     */
+    static boolean isBinary(byte[] block, Charset charset) {
+        for (byte[] magicNumber : MAGIC_NUMBERS) {
+            if (startsWith(block, magicNumber)) {
+                return true;
+            }
+        }
+        // in UTF-16 and UTF-32 most characters have NUL bytes
+        if ("\n".getBytes(charset).length == 1) {
+            for (byte b : block) {
+                if (b == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] block, byte[] prefix) {
+        if (block.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (block[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
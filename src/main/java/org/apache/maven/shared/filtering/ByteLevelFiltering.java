@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters a stream encoded with an ASCII compatible charset without decoding most of it. When the characters which
+ * may start a token are all ASCII, their bytes cannot be part of another character, so the stream is split into:
+ * <ul>
+ * <li>runs far enough from any such byte for no token to reach them, which are copied as is once validated,</li>
+ * <li>segments around these bytes, which are decoded, filtered by the readers of the pipeline and encoded again.</li>
+ * </ul>
+ * A segment ends where the readers are known to be between two tokens, so filtering the segments one by one gives the
+ * same output as filtering the whole stream.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class ByteLevelFiltering {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * A {@code char} is never encoded with more bytes in any of the supported charsets.
+     */
+    private static final int MAXIMUM_BYTES_PER_CHAR = 3;
+
+    private final Charset charset;
+
+    private final boolean utf8;
+
+    private final boolean latin1;
+
+    private final FilterPipeline pipeline;
+
+    private final FilterPipeline.Boundary boundary;
+
+    /**
+     * Told how the stream is split, {@code null} for no one.
+     */
+    private final Parts parts;
+
+    /**
+     * Position in the stream of the first byte of the buffer.
+     */
+    private long base;
+
+    private ByteLevelFiltering(Charset charset, FilterPipeline pipeline, Parts parts) {
+        this.charset = charset;
+        this.parts = parts;
+        this.utf8 = StandardCharsets.UTF_8.equals(charset);
+        this.latin1 = StandardCharsets.ISO_8859_1.equals(charset);
+        this.pipeline = pipeline;
+        this.boundary = pipeline.newBoundary(utf8 ? MAXIMUM_BYTES_PER_CHAR : 1);
+    }
+
+    /**
+     * @param charset the charset of the stream
+     * @param pipeline the wrappers to apply
+     * @return {@code true} if the stream can be filtered at byte level
+     */
+    static boolean supports(Charset charset, FilterPipeline pipeline) {
+        return isAsciiCompatible(charset) && pipeline.hasOnlyAsciiTokenStarts();
+    }
+
+    /**
+     * Filters a stream, the {@link #supports(Charset, FilterPipeline)} condition must hold.
+     *
+     * @param in the stream to filter
+     * @param out where to write the filtered stream, not closed
+     * @param charset the charset of both streams
+     * @param pipeline the wrappers to apply
+     * @throws IOException if an IO error occurs, or if the stream is not valid in the given charset
+     */
+    static void filter(InputStream in, OutputStream out, Charset charset, FilterPipeline pipeline)
+            throws IOException {
+        new ByteLevelFiltering(charset, pipeline, null).filter(in, out);
+    }
+
+    /**
+     * Filters a stream, telling how it is split. The {@link #supports(Charset, FilterPipeline)} condition must hold,
+     * and the wrappers of the pipeline must be {@link RecordingFilterWrapper}s.
+     *
+     * @param in the stream to filter
+     * @param out where to write the filtered stream, not closed
+     * @param charset the charset of both streams
+     * @param pipeline the wrappers to apply
+     * @param parts told about the parts of the stream, in order
+     * @throws IOException if an IO error occurs, or if the stream is not valid in the given charset
+     */
+    static void filter(InputStream in, OutputStream out, Charset charset, FilterPipeline pipeline, Parts parts)
+            throws IOException {
+        new ByteLevelFiltering(charset, pipeline, parts).filter(in, out);
+    }
+
+    /**
+     * Filters a segment on its own.
+     *
+     * @param buffer the stream
+     * @param from the position of the first byte of the segment
+     * @param to the position following the last byte of the segment
+     * @param charset the charset of the stream
+     * @param pipeline the wrappers to apply
+     * @return the filtered segment, encoded
+     * @throws IOException if an IO error occurs, or if the segment is not valid in the given charset
+     */
+    static ByteBuffer filterSegment(byte[] buffer, int from, int to, Charset charset, FilterPipeline pipeline)
+            throws IOException {
+        CharBuffer decoded = charset.newDecoder().decode(ByteBuffer.wrap(buffer, from, to - from));
+        Reader segment =
+                new CharArrayReader(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
+        StringBuilder filtered = new StringBuilder(decoded.remaining());
+        try (Reader reader = pipeline.getReader(segment)) {
+            char[] chars = new char[FilteringUtils.COPY_BUFFER_LENGTH];
+            int nRead;
+            while ((nRead = reader.read(chars, 0, chars.length)) >= 0) {
+                filtered.append(chars, 0, nRead);
+            }
+        }
+        // same replacement of unmappable characters as a writer
+        return charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .encode(CharBuffer.wrap(filtered));
+    }
+
+    private void filter(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        // bytes before done have been written, from done to pos they are either raw or the current segment
+        int done = 0;
+        int pos = 0;
+        int end = 0;
+        boolean inSegment = false;
+        while (true) {
+            if (pos == end) {
+                if (!inSegment) {
+                    done = writeRaw(buffer, done, pos, out, false);
+                } else if (pos - done >= FilterPipeline.MAXIMUM_SEGMENT_SIZE) {
+                    filterRemainder(buffer, done, end, in, out);
+                    return;
+                }
+                if (done > 0) {
+                    System.arraycopy(buffer, done, buffer, 0, end - done);
+                    end -= done;
+                    pos -= done;
+                    boundary.shift(done);
+                    base += done;
+                    done = 0;
+                }
+                if (end == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int nRead = in.read(buffer, end, buffer.length - end);
+                if (nRead == -1) {
+                    break;
+                }
+                end += nRead;
+                continue;
+            }
+
+            byte b = buffer[pos];
+            if (b >= 0 && pipeline.isTokenStart((char) b)) {
+                if (!inSegment) {
+                    done = writeRaw(buffer, done, pos, out, true);
+                    inSegment = true;
+                }
+                boundary.tokenStart(pos);
+            } else if (inSegment && boundary.isSettled(pos, b == '\n') && isCharacterStart(b)) {
+                filterSegment(buffer, done, pos, out);
+                done = pos;
+                inSegment = false;
+            }
+            pos++;
+        }
+
+        if (inSegment) {
+            filterSegment(buffer, done, end, out);
+        } else {
+            writeRaw(buffer, done, end, out, true);
+        }
+    }
+
+    /**
+     * Writes the bytes of complete characters, checking they are valid.
+     *
+     * @return the index of the first byte not written, the start of an incomplete character
+     */
+    private int writeRaw(byte[] buffer, int from, int to, OutputStream out, boolean complete) throws IOException {
+        int valid = validate(buffer, from, to);
+        if (valid < to && complete) {
+            // truncated character
+            throw malformed(buffer, from, to);
+        }
+        out.write(buffer, from, valid - from);
+        if (parts != null && valid > from) {
+            parts.raw(base + from, base + valid);
+        }
+        return valid;
+    }
+
+    private int validate(byte[] buffer, int from, int to) throws IOException {
+        if (latin1) {
+            return to;
+        }
+        int i = from;
+        while (i < to) {
+            int b = buffer[i];
+            if (b >= 0) {
+                i++;
+                continue;
+            }
+            if (!utf8) {
+                throw malformed(buffer, from, to);
+            }
+            int length = utf8SequenceLength(buffer, i, to);
+            if (length == 0) {
+                // incomplete
+                return i;
+            }
+            if (length < 0) {
+                throw malformed(buffer, from, to);
+            }
+            i += length;
+        }
+        return to;
+    }
+
+    /**
+     * @return the length of the well-formed UTF-8 sequence starting at the given index, 0 if it is incomplete or
+     *         -1 if it is malformed
+     */
+    private static int utf8SequenceLength(byte[] buffer, int i, int to) {
+        int lead = buffer[i] & 0xFF;
+        int length;
+        int min = 0x80;
+        int max = 0xBF;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            length = 2;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            length = 3;
+            if (lead == 0xE0) {
+                min = 0xA0;
+            } else if (lead == 0xED) {
+                // no surrogates
+                max = 0x9F;
+            }
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            length = 4;
+            if (lead == 0xF0) {
+                min = 0x90;
+            } else if (lead == 0xF4) {
+                max = 0x8F;
+            }
+        } else {
+            return -1;
+        }
+        for (int j = 1; j < length; j++) {
+            if (i + j == to) {
+                return 0;
+            }
+            int b = buffer[i + j] & 0xFF;
+            if (b < min || b > max) {
+                return -1;
+            }
+            min = 0x80;
+            max = 0xBF;
+        }
+        return length;
+    }
+
+    /**
+     * @return the error a decoder reports for the given bytes, starting with a complete character
+     */
+    private CharacterCodingException malformed(byte[] buffer, int from, int to) {
+        try {
+            charset.newDecoder().decode(ByteBuffer.wrap(buffer, from, to - from));
+        } catch (CharacterCodingException e) {
+            return e;
+        }
+        return new MalformedInputException(1);
+    }
+
+    private void filterSegment(byte[] buffer, int from, int to, OutputStream out) throws IOException {
+        if (parts == null) {
+            ByteBuffer encoded = filterSegment(buffer, from, to, charset, pipeline);
+            out.write(encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining());
+            return;
+        }
+        List<Map<String, String>> expressions = new ArrayList<>();
+        ByteBuffer encoded = filterSegment(buffer, from, to, charset, pipeline.recording(expressions));
+        byte[] output = new byte[encoded.remaining()];
+        encoded.get(output);
+        out.write(output);
+        parts.segment(base + from, base + to, output, expressions);
+    }
+
+    private void filterRemainder(byte[] buffer, int from, int to, InputStream in, OutputStream out)
+            throws IOException {
+        if (parts != null) {
+            parts.remainder(base + from);
+        }
+        InputStream remainder = new SequenceInputStream(new ByteArrayInputStream(buffer, from, to - from), in);
+        Reader reader = pipeline.getReader(new InputStreamReader(remainder, charset.newDecoder()));
+        Writer writer = new OutputStreamWriter(out, charset);
+        char[] chars = new char[FilteringUtils.COPY_BUFFER_LENGTH];
+        int nRead;
+        while ((nRead = reader.read(chars, 0, chars.length)) >= 0) {
+            writer.write(chars, 0, nRead);
+        }
+        // the caller owns the stream
+        writer.flush();
+    }
+
+    private boolean isCharacterStart(byte b) {
+        // UTF-8 continuation bytes are 10xxxxxx
+        return !utf8 || (b & 0xC0) != 0x80;
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        return StandardCharsets.UTF_8.equals(charset)
+                || StandardCharsets.ISO_8859_1.equals(charset)
+                || StandardCharsets.US_ASCII.equals(charset);
+    }
+
+    /**
+     * Told how a stream is split while it is filtered, positions being counted from the start of the stream.
+     */
+    interface Parts {
+
+        /**
+         * @param from the position of the first byte copied as is
+         * @param to the position following the last one
+         */
+        void raw(long from, long to);
+
+        /**
+         * @param from the position of the first byte of the segment
+         * @param to the position following the last one
+         * @param output the filtered segment, encoded
+         * @param expressions for each wrapper, the expressions resolved in the segment with their values
+         */
+        void segment(long from, long to, byte[] output, List<Map<String, String>> expressions);
+
+        /**
+         * @param from the position from which the rest of the stream is filtered as a whole, without being split
+         */
+        void remainder(long from);
+    }
+}
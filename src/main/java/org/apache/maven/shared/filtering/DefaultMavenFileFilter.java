@@ -68,27 +68,45 @@ public class DefaultMavenFileFilter extends BaseFilter implements MavenFileFilte
 
     @Override
     public void copyFile(MavenFileFilterRequest mavenFileFilterRequest) throws MavenFilteringException {
-        List<FilterWrapper> filterWrappers = getDefaultFilterWrappers(mavenFileFilterRequest);
+        List<FilterWrapper> filterWrappers = mavenFileFilterRequest.getFilterWrappers() != null
+                ? mavenFileFilterRequest.getFilterWrappers()
+                : getDefaultFilterWrappers(mavenFileFilterRequest);
 
         copyFile(
                 mavenFileFilterRequest.getFrom(),
                 mavenFileFilterRequest.getTo(),
                 mavenFileFilterRequest.isFiltering(),
                 filterWrappers,
-                mavenFileFilterRequest.getEncoding());
+                mavenFileFilterRequest.getEncoding(),
+                mavenFileFilterRequest.isOverwrite(),
+                mavenFileFilterRequest.getMetrics(),
+                mavenFileFilterRequest.getFilteringListener());
     }
 
     @Override
     public void copyFile(Path from, Path to, boolean filtering, List<FilterWrapper> filterWrappers, String encoding)
             throws MavenFilteringException {
+        copyFile(from, to, filtering, filterWrappers, encoding, false, null, null);
+    }
+
+    private void copyFile(
+            Path from,
+            Path to,
+            boolean filtering,
+            List<FilterWrapper> filterWrappers,
+            String encoding,
+            boolean overwrite,
+            FilteringMetrics metrics,
+            FilteringListener listener)
+            throws MavenFilteringException {
         try {
             if (filtering) {
                 getLogger().debug("filtering {} to {}", from, to);
                 FilterWrapper[] array = filterWrappers.toArray(new FilterWrapper[0]);
-                FilteringUtils.copyFile(from, to, encoding, array, false);
+                FilteringUtils.copyFile(from, to, encoding, array, overwrite, metrics, listener);
             } else {
                 getLogger().debug("copy {} to {}", from, to);
-                FilteringUtils.copyFile(from, to, encoding, new FilterWrapper[0], false);
+                FilteringUtils.copyFile(from, to, encoding, new FilterWrapper[0], overwrite, metrics, listener);
             }
 
             buildContext.refresh(to.toFile());
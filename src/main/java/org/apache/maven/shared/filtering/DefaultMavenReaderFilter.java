@@ -19,7 +19,6 @@
 package org.apache.maven.shared.filtering;
 
 import java.io.Reader;
-import java.util.Collections;
 import java.util.List;
 
 import org.apache.maven.api.Project;
@@ -61,14 +60,9 @@ public class DefaultMavenReaderFilter extends BaseFilter implements MavenReaderF
 
     @Override
     public Reader filter(Reader from, boolean filtering, List<FilterWrapper> filterWrappers) {
-        return filterWrap(from, filtering ? filterWrappers : Collections.emptyList());
-    }
-
-    private static Reader filterWrap(Reader from, Iterable<FilterWrapper> wrappers) {
-        Reader reader = from;
-        for (FilterWrapper wrapper : wrappers) {
-            reader = wrapper.getReader(reader);
+        if (!filtering) {
+            return from;
         }
-        return reader;
+        return FilteringUtils.filterWrap(from, filterWrappers.toArray(new FilterWrapper[0]));
     }
 }
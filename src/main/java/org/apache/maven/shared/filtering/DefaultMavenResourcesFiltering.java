@@ -28,8 +28,20 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.api.di.Inject;
 import org.apache.maven.api.di.Named;
@@ -60,6 +72,11 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
 
     private final BuildContext buildContext;
 
+    /**
+     * Shared by all the resources of all the executions.
+     */
+    private final MatchPatternsCache matchPatternsCache = new MatchPatternsCache();
+
     @Inject
     public DefaultMavenResourcesFiltering(MavenFileFilter mavenFileFilter, BuildContext buildContext) {
         this.mavenFileFilter = requireNonNull(mavenFileFilter);
@@ -75,10 +92,18 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
 
     @Override
     public boolean filteredFileExtension(String fileName, List<String> userNonFilteredFileExtensions) {
-        List<String> nonFilteredFileExtensions = new ArrayList<>(getDefaultNonFilteredFileExtensions());
+        return filteredFileExtension(fileName, getNonFilteredFileExtensions(userNonFilteredFileExtensions));
+    }
+
+    private Set<String> getNonFilteredFileExtensions(List<String> userNonFilteredFileExtensions) {
+        Set<String> nonFilteredFileExtensions = new HashSet<>(getDefaultNonFilteredFileExtensions());
         if (userNonFilteredFileExtensions != null) {
             nonFilteredFileExtensions.addAll(userNonFilteredFileExtensions);
         }
+        return nonFilteredFileExtensions;
+    }
+
+    private static boolean filteredFileExtension(String fileName, Set<String> nonFilteredFileExtensions) {
         String extension = getExtension(fileName);
         boolean filteredFileExtension = !nonFilteredFileExtensions.contains(extension);
         if (LOGGER.isDebugEnabled()) {
@@ -109,6 +134,26 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
             throw new MavenFilteringException("mavenResourcesExecution cannot be null");
         }
 
+        // one pool for all the resources, the threads are only started by the first copies
+        ExecutorService executor = mavenResourcesExecution.getParallelism() > 1
+                ? Executors.newFixedThreadPool(mavenResourcesExecution.getParallelism())
+                : null;
+        try {
+            filterResources(mavenResourcesExecution, executor);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @param mavenResourcesExecution the execution
+     * @param executor the executor copying the files, {@code null} to copy them one after the other
+     * @throws MavenFilteringException the failure of the first file which could not be copied
+     */
+    private void filterResources(MavenResourcesExecution mavenResourcesExecution, ExecutorService executor)
+            throws MavenFilteringException {
         if (mavenResourcesExecution.getResources() == null) {
             LOGGER.info("No resources configured skip copying/filtering");
             return;
@@ -143,6 +188,34 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
         boolean isFilteringUsed = false;
         List<Path> propertiesFiles = new ArrayList<>();
 
+        // null if the names are not filtered
+        FileNameFilter fileNameFilter = mavenResourcesExecution.isFilterFilenames()
+                        && !mavenResourcesExecution.getFilterWrappers().isEmpty()
+                ? new FileNameFilter(mavenResourcesExecution.getFilterWrappers())
+                : null;
+
+        // compiled once for all the files
+        Set<String> nonFilteredFileExtensions =
+                getNonFilteredFileExtensions(mavenResourcesExecution.getNonFilteredFileExtensions());
+
+        // the directories known to exist, for each destination directory to be created or checked only once
+        Set<Path> existingDirectories = ConcurrentHashMap.newKeySet();
+
+        // the source of each destination written by this execution: a later resource overwrites it even if it looks up
+        // to date, and when flattening it is a collision, unlike a file left by a previous execution
+        Map<Path, Path> writtenSources = new ConcurrentHashMap<>();
+
+        // an incremental build context knows better which files changed
+        OutputManifest manifest = null;
+        if (mavenResourcesExecution.getManifestFile() != null
+                && !mavenResourcesExecution.isOverwrite()
+                && !buildContext.isIncremental()) {
+            List<FilterWrapper> filterWrappers = mavenResourcesExecution.getFilterWrappers();
+            manifest = OutputManifest.load(
+                    mavenResourcesExecution.getManifestFile(),
+                    filterWrappers == null ? Collections.emptyList() : filterWrappers);
+        }
+
         for (Resource resource : mavenResourcesExecution.getResources()) {
 
             if (LOGGER.isDebugEnabled()) {
@@ -209,11 +282,17 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
                     || buildContext.hasDelta(mavenResourcesExecution.getFileFilters())
                     || buildContext.hasDelta(getRelativeOutputDirectory(mavenResourcesExecution));
             LOGGER.debug("ignoreDelta " + ignoreDelta);
-            Scanner scanner = buildContext.newScanner(resourceDirectory.toFile(), ignoreDelta);
+            // without incremental build, every file is included and none is reported as deleted: a single walk of
+            // the directory lists both the files and the directories
+            Scanner scanner = buildContext.isIncremental()
+                    ? buildContext.newScanner(resourceDirectory.toFile(), ignoreDelta)
+                    : new FileTreeScanner(resourceDirectory, matchPatternsCache);
 
             setupScanner(resource, scanner, mavenResourcesExecution.isAddDefaultExcludes());
 
+            long scanStart = System.nanoTime();
             scanner.scan();
+            long scanTime = System.nanoTime() - scanStart;
 
             if (mavenResourcesExecution.isIncludeEmptyDirs()) {
                 try {
@@ -226,11 +305,20 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
             }
 
             List<String> includedFiles = Arrays.asList(scanner.getIncludedFiles());
+            if (mavenResourcesExecution.getMetrics() != null) {
+                mavenResourcesExecution.getMetrics().scanned(includedFiles.size(), scanTime);
+            }
 
             try {
                 Path basedir =
                         mavenResourcesExecution.getMavenProject().getBasedir().toAbsolutePath();
-                Path destination = getDestinationFile(outputDirectory, targetPath, "", mavenResourcesExecution)
+                Path destination = getDestinationFile(
+                                outputDirectory,
+                                targetPath,
+                                "",
+                                mavenResourcesExecution,
+                                fileNameFilter,
+                                existingDirectories)
                         .toAbsolutePath();
                 LOGGER.info("Copying " + includedFiles.size() + " resource" + (includedFiles.size() > 1 ? "s" : "")
                         + " from "
@@ -243,24 +331,37 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
                         + (targetPath == null ? "" : " to " + targetPath));
             }
 
+            // with several threads, the files are all listed first and then copied, grouped by destination
+            boolean parallel = executor != null;
+            Map<Path, List<FileCopy>> copies = new LinkedHashMap<>();
+            int index = 0;
+
             for (String name : includedFiles) {
 
                 LOGGER.debug("Copying file " + name);
                 Path source = resourceDirectory.resolve(name);
 
-                Path destinationFile = getDestinationFile(outputDirectory, targetPath, name, mavenResourcesExecution);
+                Path destinationFile = getDestinationFile(
+                        outputDirectory,
+                        targetPath,
+                        name,
+                        mavenResourcesExecution,
+                        fileNameFilter,
+                        existingDirectories);
 
-                if (mavenResourcesExecution.isFlatten() && Files.exists(destinationFile)) {
+                Path previousSource = writtenSources.put(destinationFile, source);
+                if (previousSource != null && mavenResourcesExecution.isFlatten()) {
                     if (mavenResourcesExecution.isOverwrite()) {
-                        LOGGER.warn(
-                                "existing file " + destinationFile.getFileName() + " will be overwritten by " + name);
+                        LOGGER.warn("existing file " + destinationFile.getFileName() + " copied from "
+                                + previousSource + " will be overwritten by " + name);
                     } else {
                         throw new MavenFilteringException("existing file " + destinationFile.getFileName()
-                                + " will be overwritten by " + name + " and overwrite was not set to true");
+                                + " copied from " + previousSource + " will be overwritten by " + name
+                                + " and overwrite was not set to true");
                     }
                 }
-                boolean filteredExt = filteredFileExtension(
-                        source.getFileName().toString(), mavenResourcesExecution.getNonFilteredFileExtensions());
+                boolean filtering = resource.isFiltering()
+                        && filteredFileExtension(source.getFileName().toString(), nonFilteredFileExtensions);
                 if (resource.isFiltering() && isPropertiesFile(source)) {
                     propertiesFiles.add(source);
                 }
@@ -270,16 +371,33 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
                         source, mavenResourcesExecution.getEncoding(), mavenResourcesExecution.getPropertiesEncoding());
                 LOGGER.debug(
                         "Using '" + encoding + "' encoding to copy filtered resource '" + source.getFileName() + "'.");
-                mavenFileFilter.copyFile(
+                FileCopy copy = new FileCopy(
+                        index++,
                         source,
                         destinationFile,
-                        resource.isFiltering() && filteredExt,
-                        mavenResourcesExecution.getFilterWrappers(),
-                        encoding);
+                        filtering,
+                        encoding,
+                        mavenResourcesExecution.isOverwrite() || previousSource != null,
+                        mavenResourcesExecution.isDetectBinaryFiles(),
+                        mavenResourcesExecution.getMetrics(),
+                        mavenResourcesExecution.getFilteringListener());
+                if (parallel) {
+                    copies.computeIfAbsent(destinationFile, d -> new ArrayList<>(1)).add(copy);
+                } else {
+                    copy.run(mavenResourcesExecution.getFilterWrappers(), manifest);
+                }
+            }
+
+            if (parallel && !copies.isEmpty()) {
+                copyFiles(copies.values(), mavenResourcesExecution, manifest, executor);
             }
 
             // deal with deleted source files
 
+            if (!buildContext.isIncremental()) {
+                continue;
+            }
+
             scanner = buildContext.newDeleteScanner(resourceDirectory.toFile());
 
             setupScanner(resource, scanner, mavenResourcesExecution.isAddDefaultExcludes());
@@ -287,7 +405,13 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
             scanner.scan();
 
             for (String name : scanner.getIncludedFiles()) {
-                Path destinationFile = getDestinationFile(outputDirectory, targetPath, name, mavenResourcesExecution);
+                Path destinationFile = getDestinationFile(
+                        outputDirectory,
+                        targetPath,
+                        name,
+                        mavenResourcesExecution,
+                        fileNameFilter,
+                        existingDirectories);
 
                 try {
                     Files.deleteIfExists(destinationFile);
@@ -299,6 +423,15 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
             }
         }
 
+        if (manifest != null) {
+            try {
+                manifest.save();
+            } catch (IOException e) {
+                throw new MavenFilteringException(
+                        "Cannot write the manifest " + mavenResourcesExecution.getManifestFile(), e);
+            }
+        }
+
         // Warn the user if all of the following requirements are met, to avoid those that are not affected
         // - the propertiesEncoding parameter has not been set
         // - properties is a filtered extension
@@ -328,6 +461,63 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
         }
     }
 
+    /**
+     * Copies groups of files concurrently, the files of a group one after the other, in order.
+     *
+     * @param groups the files grouped by destination
+     * @param mavenResourcesExecution the execution
+     * @param manifest the outputs of the previous execution, {@code null} if not known
+     * @param executor the executor copying the groups
+     * @throws MavenFilteringException the failure of the first file which could not be copied
+     */
+    private void copyFiles(
+            Collection<List<FileCopy>> groups,
+            MavenResourcesExecution mavenResourcesExecution,
+            OutputManifest manifest,
+            ExecutorService executor)
+            throws MavenFilteringException {
+        List<Callable<Void>> tasks = new ArrayList<>(groups.size());
+        for (List<FileCopy> group : groups) {
+            tasks.add(() -> {
+                for (FileCopy copy : group) {
+                    if (!copy.tryRun(mavenResourcesExecution.getFilterWrappers(), manifest)) {
+                        // the next ones would not have been copied either
+                        break;
+                    }
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MavenFilteringException("Interrupted while copying resources", e);
+        } catch (ExecutionException e) {
+            // only errors are not caught by the copies
+            throw (Error) e.getCause();
+        }
+
+        // in the order of the files, whichever failed first in time
+        FileCopy firstFailed = null;
+        for (List<FileCopy> group : groups) {
+            for (FileCopy copy : group) {
+                if (copy.failure != null && (firstFailed == null || copy.index < firstFailed.index)) {
+                    firstFailed = copy;
+                }
+            }
+        }
+        if (firstFailed != null) {
+            if (firstFailed.failure instanceof MavenFilteringException) {
+                throw (MavenFilteringException) firstFailed.failure;
+            }
+            throw (RuntimeException) firstFailed.failure;
+        }
+    }
+
     /**
      * Get the encoding to use when filtering the specified file. Properties files can be configured to use a different
      * encoding than regular files.
@@ -374,7 +564,12 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
     }
 
     private Path getDestinationFile(
-            Path outputDirectory, String targetPath, String name, MavenResourcesExecution mavenResourcesExecution)
+            Path outputDirectory,
+            String targetPath,
+            String name,
+            MavenResourcesExecution mavenResourcesExecution,
+            FileNameFilter fileNameFilter,
+            Set<Path> existingDirectories)
             throws MavenFilteringException {
         String destination;
         if (!mavenResourcesExecution.isFlatten()) {
@@ -385,9 +580,8 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
             destination = filePath.toString();
         }
 
-        if (mavenResourcesExecution.isFilterFilenames()
-                && !mavenResourcesExecution.getFilterWrappers().isEmpty()) {
-            destination = filterFileName(destination, mavenResourcesExecution.getFilterWrappers());
+        if (fileNameFilter != null) {
+            destination = fileNameFilter.filter(destination);
         }
 
         if (targetPath != null) {
@@ -396,10 +590,18 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
 
         Path destinationFile = outputDirectory.resolve(destination);
 
-        try {
-            Files.createDirectories(destinationFile.getParent());
-        } catch (IOException e) {
-            throw new MavenFilteringException("Unable to create directory " + destinationFile.getParent(), e);
+        Path directory = destinationFile.getParent();
+        if (!existingDirectories.contains(directory)) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new MavenFilteringException("Unable to create directory " + directory, e);
+            }
+            // its parents exist as well
+            Path parent = directory;
+            while (parent != null && existingDirectories.add(parent)) {
+                parent = parent.getParent();
+            }
         }
 
         return destinationFile;
@@ -474,7 +676,7 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
     /*
      * Filter the name of a file using the same mechanism for filtering the content of the file.
      */
-    private String filterFileName(String name, List<FilterWrapper> wrappers) throws MavenFilteringException {
+    private static String filterFileName(String name, List<FilterWrapper> wrappers) throws MavenFilteringException {
 
         Reader reader = new StringReader(name);
         for (FilterWrapper wrapper : wrappers) {
@@ -498,4 +700,186 @@ public class DefaultMavenResourcesFiltering implements MavenResourcesFiltering {
             throw new MavenFilteringException("Failed filtering filename" + name, e);
         }
     }
+
+    /**
+     * Filters the names of the files of an execution. Names without any character which may start a token are left as
+     * they are, the others are filtered once.
+     */
+    private static final class FileNameFilter {
+
+        private final List<FilterWrapper> wrappers;
+
+        /**
+         * {@code null} if any character may be replaced.
+         */
+        private final FilterPipeline pipeline;
+
+        private final Map<String, String> filteredNames = new ConcurrentHashMap<>();
+
+        FileNameFilter(List<FilterWrapper> wrappers) {
+            this.wrappers = wrappers;
+            this.pipeline = FilterPipeline.of(wrappers.toArray(new FilterWrapper[0]));
+        }
+
+        String filter(String name) throws MavenFilteringException {
+            if (pipeline != null && !hasTokenStart(name)) {
+                return name;
+            }
+            String filteredName = filteredNames.get(name);
+            if (filteredName == null) {
+                filteredName = filterFileName(name, wrappers);
+                filteredNames.put(name, filteredName);
+            }
+            return filteredName;
+        }
+
+        private boolean hasTokenStart(String name) {
+            for (int i = 0; i < name.length(); i++) {
+                if (pipeline.isTokenStart(name.charAt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A file to copy, the {@code index}th of its resource.
+     */
+    private final class FileCopy {
+
+        private final int index;
+
+        private final Path source;
+
+        private final Path destination;
+
+        private final boolean filtering;
+
+        private final String encoding;
+
+        private final boolean overwrite;
+
+        /**
+         * Whether to copy the file without filtering if it looks binary.
+         */
+        private final boolean detectBinary;
+
+        /**
+         * Where the copy is metered, {@code null} if it is not.
+         */
+        private final FilteringMetrics metrics;
+
+        /**
+         * Whom to tell about the copy, {@code null} for none.
+         */
+        private final FilteringListener listener;
+
+        /**
+         * Why the copy failed, if it did.
+         */
+        private volatile Exception failure;
+
+        FileCopy(
+                int index,
+                Path source,
+                Path destination,
+                boolean filtering,
+                String encoding,
+                boolean overwrite,
+                boolean detectBinary,
+                FilteringMetrics metrics,
+                FilteringListener listener) {
+            this.index = index;
+            this.source = source;
+            this.destination = destination;
+            this.filtering = filtering;
+            this.encoding = encoding;
+            this.overwrite = overwrite;
+            this.detectBinary = detectBinary;
+            this.metrics = metrics;
+            this.listener = listener;
+        }
+
+        /**
+         * @param filterWrappers the wrappers filtering the file
+         * @param manifest the outputs of the previous execution, {@code null} if not known
+         */
+        void run(List<FilterWrapper> filterWrappers, OutputManifest manifest) throws MavenFilteringException {
+            if (manifest == null) {
+                copy(filtering && !looksBinary(), filterWrappers, overwrite);
+                return;
+            }
+            try {
+                if (!overwrite && manifest.isUpToDate(source, destination, filtering, encoding)) {
+                    LOGGER.debug("{} is up to date", destination);
+                    if (metrics != null) {
+                        metrics.skipped();
+                    }
+                    if (listener != null) {
+                        listener.fileSkipped(source, destination);
+                    }
+                    return;
+                }
+                // the manifest, rather than the content, tells the outputs to overwrite, and it records the
+                // expressions of the file through its own view of the wrappers
+                OutputManifest.Source state = manifest.prepare(source, filtering, looksBinary(), encoding);
+                if (state.isCopiedAsIs()) {
+                    LOGGER.debug("{} has no expression, copying it as is", source);
+                    copy(false, filterWrappers, true);
+                } else {
+                    copy(filtering, state.getFilterWrappers(), true);
+                }
+                manifest.record(state, destination);
+            } catch (IOException e) {
+                throw new MavenFilteringException("Cannot tell whether " + destination + " is up to date", e);
+            }
+        }
+
+        private void copy(boolean filtering, List<FilterWrapper> filterWrappers, boolean overwrite)
+                throws MavenFilteringException {
+            MavenFileFilterRequest request = new MavenFileFilterRequest();
+            request.setFrom(source);
+            request.setTo(destination);
+            request.setFiltering(filtering);
+            request.setEncoding(encoding);
+            // the default wrappers are only looked up when none are given
+            request.setFilterWrappers(filtering ? filterWrappers : Collections.emptyList());
+            request.setOverwrite(overwrite);
+            request.setMetrics(metrics);
+            request.setFilteringListener(listener);
+            mavenFileFilter.copyFile(request);
+        }
+
+        /**
+         * @return {@code true} if the file is to be filtered but looks binary, in which case it is copied as is
+         */
+        private boolean looksBinary() throws MavenFilteringException {
+            if (!filtering || !detectBinary) {
+                return false;
+            }
+            try {
+                if (BinaryContent.isBinary(source, FilteringUtils.charset(encoding))) {
+                    LOGGER.debug("{} looks binary, copying it without filtering", source);
+                    return true;
+                }
+                return false;
+            } catch (IOException e) {
+                throw new MavenFilteringException("Cannot read " + source, e);
+            }
+        }
+
+        /**
+         * @return {@code true} if the file has been copied, otherwise the failure is kept
+         */
+        boolean tryRun(List<FilterWrapper> filterWrappers, OutputManifest manifest) {
+            try {
+                run(filterWrappers, manifest);
+                return true;
+            } catch (MavenFilteringException | RuntimeException e) {
+                failure = e;
+                return false;
+            }
+        }
+    }
 }
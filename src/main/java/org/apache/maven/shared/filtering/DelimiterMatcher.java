@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.interpolation.multi.DelimiterSpecification;
+
+/**
+ * A set of {@link DelimiterSpecification}s and an escape string compiled into a first character lookup table, so
+ * characters which cannot start a begin token nor the escape string are rejected in constant time. Instances are
+ * immutable and can be shared by all the readers created by a {@link FilterWrapper}.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class DelimiterMatcher {
+
+    private static final int ASCII = 128;
+
+    private static final DelimiterSpecification[] NONE = {};
+
+    private final boolean[] asciiStarts = new boolean[ASCII];
+
+    private final DelimiterSpecification[][] asciiCandidates = new DelimiterSpecification[ASCII][];
+
+    /**
+     * Start characters outside of the ASCII range, rare enough for a linear search.
+     */
+    private final String otherStarts;
+
+    private final Map<Character, DelimiterSpecification[]> otherCandidates = new HashMap<>();
+
+    private final boolean supportMultiLineFiltering;
+
+    /**
+     * @param specs the delimiter specifications, in iteration order
+     * @param escapeString the escape string, may be {@code null}
+     * @param supportMultiLineFiltering if multi line filtering is allowed
+     */
+    DelimiterMatcher(
+            Collection<DelimiterSpecification> specs, String escapeString, boolean supportMultiLineFiltering) {
+        this.supportMultiLineFiltering = supportMultiLineFiltering;
+        Map<Character, List<DelimiterSpecification>> byFirstCharacter = new HashMap<>();
+        for (DelimiterSpecification spec : specs) {
+            String begin = spec.getBegin();
+            if (begin.isEmpty() || (begin.indexOf('\n') >= 0 && !supportMultiLineFiltering)) {
+                // can never match
+                continue;
+            }
+            // the last matching specification wins, so try them in reverse order
+            byFirstCharacter
+                    .computeIfAbsent(begin.charAt(0), c -> new ArrayList<>())
+                    .add(0, spec);
+        }
+
+        StringBuilder others = new StringBuilder();
+        if (escapeString != null && !escapeString.isEmpty()) {
+            addStart(escapeString.charAt(0), others);
+        }
+        for (Map.Entry<Character, List<DelimiterSpecification>> entry : byFirstCharacter.entrySet()) {
+            char c = entry.getKey();
+            DelimiterSpecification[] candidates = entry.getValue().toArray(NONE);
+            if (c < ASCII) {
+                asciiCandidates[c] = candidates;
+            } else {
+                otherCandidates.put(c, candidates);
+            }
+            addStart(c, others);
+        }
+        this.otherStarts = others.toString();
+    }
+
+    /**
+     * @param delimiterSpecs delimiter specifications, in the form accepted by {@link DelimiterSpecification#parse}
+     * @param escapeString the escape string, may be {@code null}
+     * @param supportMultiLineFiltering if multi line filtering is allowed
+     * @return the compiled matcher
+     */
+    static DelimiterMatcher compile(
+            Collection<String> delimiterSpecs, String escapeString, boolean supportMultiLineFiltering) {
+        LinkedHashSet<DelimiterSpecification> specs = new LinkedHashSet<>();
+        for (String spec : delimiterSpecs) {
+            specs.add(DelimiterSpecification.parse(spec));
+        }
+        return new DelimiterMatcher(specs, escapeString, supportMultiLineFiltering);
+    }
+
+    private void addStart(char c, StringBuilder others) {
+        if (c < ASCII) {
+            asciiStarts[c] = true;
+        } else if (others.indexOf(String.valueOf(c)) < 0) {
+            others.append(c);
+        }
+    }
+
+    /**
+     * @param c a character
+     * @return {@code true} if the character may start the escape string or a begin token
+     */
+    boolean isTokenStart(char c) {
+        return c < ASCII ? asciiStarts[c] : otherStarts.indexOf(c) >= 0;
+    }
+
+    /**
+     * @return {@code true} if only ASCII characters may start the escape string or a begin token
+     */
+    boolean hasOnlyAsciiTokenStarts() {
+        return otherStarts.isEmpty();
+    }
+
+    /**
+     * @return {@code true} if a token may span several lines, otherwise a token never goes past the end of the line
+     *         it starts on
+     */
+    boolean isMultiLine() {
+        return supportMultiLineFiltering;
+    }
+
+    /**
+     * @param ch a character, or -1
+     * @return the specifications whose begin token starts with the character, the one to prefer first
+     */
+    DelimiterSpecification[] candidates(int ch) {
+        DelimiterSpecification[] candidates;
+        if (ch < 0) {
+            candidates = null;
+        } else if (ch < ASCII) {
+            candidates = asciiCandidates[ch];
+        } else {
+            candidates = otherCandidates.get((char) ch);
+        }
+        return candidates == null ? NONE : candidates;
+    }
+}
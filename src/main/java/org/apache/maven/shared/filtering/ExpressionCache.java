@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.maven.api.Project;
+import org.apache.maven.api.Session;
+import org.codehaus.plexus.interpolation.ValueSource;
+
+/**
+ * A bounded cache of the values the default filter wrappers resolve for expressions, keyed by the expression without
+ * its delimiters. Unless a cache is set on the request, each call of
+ * {@link DefaultFilterInfo#getDefaultFilterWrappers(AbstractMavenFilteringRequest)} uses a new one, so values are
+ * shared by all the files of a {@link MavenResourcesExecution}. Setting the same instance on several requests shares
+ * it between them, for instance for a whole session: values are then only reused between requests for the same
+ * project, session, properties and project start expressions.
+ * <p>
+ * This class is thread-safe. Once the maximum size is reached, new values are no longer cached.
+ *
+ * @since 4.0.0-beta-2
+ */
+public final class ExpressionCache {
+
+    /**
+     * The default maximum number of cached values.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    /**
+     * Stands for the expressions no value source knows about.
+     */
+    private static final Answer NO_ANSWER = new Answer(null, null);
+
+    /**
+     * The context of a cache used by a single wrapper, which needs no key.
+     */
+    private static final Context SINGLE_CONTEXT = new Context(null, null, null, null);
+
+    private final int maximumSize;
+
+    /**
+     * Whether the cache may be used in several contexts, which must then be told apart.
+     */
+    private final boolean shared;
+
+    private final ConcurrentMap<Context, ConcurrentMap<String, Answer>> values = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Create a cache of {@link #DEFAULT_MAXIMUM_SIZE} values at most.
+     */
+    public ExpressionCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param maximumSize the maximum number of cached values
+     */
+    public ExpressionCache(int maximumSize) {
+        this(maximumSize, true);
+    }
+
+    /**
+     * @param maximumSize the maximum number of cached values
+     * @param shared {@code false} if the cache is only used by a single wrapper, in a single context
+     */
+    ExpressionCache(int maximumSize, boolean shared) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize is negative");
+        }
+        this.maximumSize = maximumSize;
+        this.shared = shared;
+    }
+
+    /**
+     * @return the number of expressions whose value was found in the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of expressions whose value had to be resolved
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of cached values
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the maximum number of cached values
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Discards all the cached values, the counters are kept.
+     */
+    public void clear() {
+        values.clear();
+        size.set(0);
+    }
+
+    /**
+     * @param project the project the value sources resolve {@code project.*} against, may be {@code null}
+     * @param session the session the value sources resolve {@code session.*} and {@code settings.*} against, may be
+     *            {@code null}
+     * @param properties the properties, must not be modified afterwards
+     * @param projectStartExpressions the prefixes of the project expressions, may be {@code null}
+     * @param valueSources the value sources by name, in order, resolving all the expressions the same way for the
+     *            given parameters
+     * @param metrics where to count the values found in this cache, {@code null} not to
+     * @param listener whom to tell about each expression looked up, {@code null} for none
+     * @return a value source caching the values of the given ones
+     */
+    ValueSource cache(
+            Project project,
+            Session session,
+            LayeredPropertiesValueSource properties,
+            List<String> projectStartExpressions,
+            Map<String, ValueSource> valueSources,
+            FilteringMetrics metrics,
+            FilteringListener listener) {
+        // hashing the properties is only needed to tell the contexts of a shared cache apart
+        Context context =
+                shared ? new Context(project, session, properties, projectStartExpressions) : SINGLE_CONTEXT;
+        return new CachingValueSource(
+                values.computeIfAbsent(context, c -> new ConcurrentHashMap<>()), valueSources, metrics, listener);
+    }
+
+    /**
+     * A value with the name of the value source which found it.
+     */
+    private static final class Answer {
+
+        private final Object value;
+
+        private final String valueSource;
+
+        Answer(Object value, String valueSource) {
+            this.value = value;
+            this.valueSource = valueSource;
+        }
+    }
+
+    /**
+     * What the values depend on. Project and session are compared by identity, they are mutable.
+     */
+    private static final class Context {
+
+        private final Project project;
+
+        private final Session session;
+
+        private final LayeredPropertiesValueSource properties;
+
+        private final List<String> projectStartExpressions;
+
+        private final int hash;
+
+        Context(
+                Project project,
+                Session session,
+                LayeredPropertiesValueSource properties,
+                List<String> projectStartExpressions) {
+            this.project = project;
+            this.session = session;
+            this.properties = properties;
+            this.projectStartExpressions =
+                    projectStartExpressions == null ? null : new ArrayList<>(projectStartExpressions);
+            this.hash = Objects.hash(
+                    System.identityHashCode(project),
+                    System.identityHashCode(session),
+                    properties,
+                    this.projectStartExpressions);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Context)) {
+                return false;
+            }
+            Context other = (Context) o;
+            return project == other.project
+                    && session == other.session
+                    && hash == other.hash
+                    && Objects.equals(properties, other.properties)
+                    && Objects.equals(projectStartExpressions, other.projectStartExpressions);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Asks the value sources in order, the first value found wins, and caches the outcome.
+     */
+    private final class CachingValueSource implements ValueSource {
+
+        private final ConcurrentMap<String, Answer> cached;
+
+        private final Map<String, ValueSource> valueSources;
+
+        private final FilteringMetrics metrics;
+
+        private final FilteringListener listener;
+
+        CachingValueSource(
+                ConcurrentMap<String, Answer> cached,
+                Map<String, ValueSource> valueSources,
+                FilteringMetrics metrics,
+                FilteringListener listener) {
+            this.cached = cached;
+            this.valueSources = valueSources;
+            this.metrics = metrics;
+            this.listener = listener;
+        }
+
+        @Override
+        public Object getValue(String expression) {
+            return getValue(expression, null, null);
+        }
+
+        @Override
+        public Object getValue(String expression, String expressionStartDelimiter, String expressionEndDelimiter) {
+            Answer answer = cached.get(expression);
+            if (answer != null) {
+                hits.increment();
+                if (metrics != null) {
+                    metrics.expressionCacheHit();
+                }
+            } else {
+                misses.increment();
+                answer = NO_ANSWER;
+                for (Map.Entry<String, ValueSource> valueSource : valueSources.entrySet()) {
+                    Object value = valueSource
+                            .getValue()
+                            .getValue(expression, expressionStartDelimiter, expressionEndDelimiter);
+                    if (value != null) {
+                        answer = new Answer(value, valueSource.getKey());
+                        break;
+                    }
+                }
+                if (size.get() < maximumSize && cached.putIfAbsent(expression, answer) == null) {
+                    size.incrementAndGet();
+                }
+            }
+            if (listener != null) {
+                listener.expressionResolved(
+                        expression, answer.value == null ? null : String.valueOf(answer.value), answer.valueSource);
+            }
+            return answer.value;
+        }
+
+        @Override
+        public List<Object> getFeedback() {
+            List<Object> feedback = new ArrayList<>();
+            for (ValueSource valueSource : valueSources.values()) {
+                @SuppressWarnings("unchecked")
+                List<Object> sourceFeedback = valueSource.getFeedback();
+                feedback.addAll(sourceFeedback);
+            }
+            return feedback;
+        }
+
+        @Override
+        public void clearFeedback() {
+            for (ValueSource valueSource : valueSources.values()) {
+                valueSource.clearFeedback();
+            }
+        }
+    }
+}
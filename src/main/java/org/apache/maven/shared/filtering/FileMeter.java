@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Meters the copy of one file, by a single thread, for the {@link FilteringMetrics} and the {@link FilteringListener}
+ * of the request, which are told once the copy is done.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class FileMeter {
+
+    private final Path source;
+
+    private final Path destination;
+
+    private final FilteringMetrics metrics;
+
+    private final FilteringListener listener;
+
+    private final long start;
+
+    private long read;
+
+    private long written;
+
+    private long writing;
+
+    private FileMeter(Path source, Path destination, FilteringMetrics metrics, FilteringListener listener) {
+        this.source = source;
+        this.destination = destination;
+        this.metrics = metrics;
+        this.listener = listener;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * @param source the file to copy
+     * @param destination the destination file
+     * @param filtering whether the file is to be filtered
+     * @param metrics where to count the file, may be {@code null}
+     * @param listener whom to tell about the file, may be {@code null}
+     * @return a meter started now, {@code null} if there is nothing to meter for
+     */
+    static FileMeter start(
+            Path source, Path destination, boolean filtering, FilteringMetrics metrics, FilteringListener listener) {
+        if (metrics == null && listener == null) {
+            return null;
+        }
+        if (listener != null) {
+            listener.fileStarted(source, destination, filtering);
+        }
+        return new FileMeter(source, destination, metrics, listener);
+    }
+
+    /**
+     * @param in the content of the file
+     * @return the same content, its bytes being counted
+     */
+    InputStream meter(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    read++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    read += n;
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * @param out the destination
+     * @return the same destination, its bytes and the time spent writing them being counted
+     */
+    OutputStream meter(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                long before = System.nanoTime();
+                out.write(b);
+                writing += System.nanoTime() - before;
+                written++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                long before = System.nanoTime();
+                out.write(b, off, len);
+                writing += System.nanoTime() - before;
+                written += len;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                long before = System.nanoTime();
+                out.flush();
+                writing += System.nanoTime() - before;
+            }
+
+            @Override
+            public void close() throws IOException {
+                long before = System.nanoTime();
+                try {
+                    out.close();
+                } finally {
+                    writing += System.nanoTime() - before;
+                }
+            }
+        };
+    }
+
+    void read(long bytes) {
+        read += bytes;
+    }
+
+    void written(long bytes, long nanos) {
+        written += bytes;
+        writing += nanos;
+    }
+
+    void copied() {
+        finished(false, false);
+    }
+
+    /**
+     * @param cacheHit whether the file has been filtered from its cached segments
+     */
+    void filtered(boolean cacheHit) {
+        finished(true, cacheHit);
+    }
+
+    /**
+     * The destination turned out to be up to date.
+     */
+    void skipped() {
+        if (metrics != null) {
+            metrics.skipped(read, System.nanoTime() - start);
+        }
+        if (listener != null) {
+            listener.fileSkipped(source, destination);
+        }
+    }
+
+    private void finished(boolean filtered, boolean cacheHit) {
+        long elapsed = System.nanoTime() - start;
+        if (metrics != null) {
+            metrics.finished(filtered, cacheHit, read, written, elapsed - writing, writing);
+        }
+        if (listener != null) {
+            listener.fileFinished(source, destination, filtered, Duration.ofNanos(elapsed), read, written);
+        }
+    }
+}
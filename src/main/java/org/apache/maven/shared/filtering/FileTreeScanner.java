@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.codehaus.plexus.util.AbstractScanner;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.MatchPatterns;
+
+/**
+ * Lists the same files and directories as a {@link DirectoryScanner}, in a single {@link Files#walkFileTree walk} of
+ * the directory tree: the included files and the included directories are both collected on the way, and directories
+ * which cannot hold any included file are not entered. Symbolic links are followed, and loops are skipped. The
+ * patterns are compiled once for all the scanners sharing a {@link MatchPatternsCache}. The included files and
+ * directories are sorted with the {@linkplain #setFilenameComparator(java.util.Comparator) filename comparator}, if
+ * any, once the walk is done.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class FileTreeScanner extends AbstractScanner {
+
+    private static final String[] EMPTY_STRING_ARRAY = {};
+
+    private final Path basedir;
+
+    private final MatchPatternsCache matchPatternsCache;
+
+    private MatchPatterns includesPatterns;
+
+    private MatchPatterns excludesPatterns;
+
+    private final List<String> includedFiles = new ArrayList<>();
+
+    private final List<String> includedDirectories = new ArrayList<>();
+
+    /**
+     * @param basedir the directory to scan
+     * @param matchPatternsCache where to find the compiled patterns
+     */
+    FileTreeScanner(Path basedir, MatchPatternsCache matchPatternsCache) {
+        this.basedir = basedir;
+        this.matchPatternsCache = matchPatternsCache;
+    }
+
+    @Override
+    public void scan() {
+        if (!Files.isDirectory(basedir)) {
+            throw new IllegalStateException("basedir " + basedir + " does not exist or is not a directory");
+        }
+        setupDefaultFilters();
+        setupMatchPatterns();
+        includedFiles.clear();
+        includedDirectories.clear();
+
+        try {
+            Files.walkFileTree(basedir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new Visitor());
+        } catch (IOException e) {
+            // the visitor does not throw any
+            throw new UncheckedIOException(e);
+        }
+
+        if (filenameComparator != null) {
+            includedFiles.sort(filenameComparator);
+            includedDirectories.sort(filenameComparator);
+        }
+    }
+
+    @Override
+    protected void setupMatchPatterns() {
+        includesPatterns = matchPatternsCache.get(includes);
+        excludesPatterns = matchPatternsCache.get(excludes);
+    }
+
+    @Override
+    protected boolean isIncluded(String name) {
+        return includesPatterns.matches(name, isCaseSensitive);
+    }
+
+    @Override
+    protected boolean isExcluded(String name) {
+        return excludesPatterns.matches(name, isCaseSensitive);
+    }
+
+    @Override
+    protected boolean couldHoldIncluded(String name) {
+        return includesPatterns.matchesPatternStart(name, isCaseSensitive);
+    }
+
+    private boolean isSelected(String name) {
+        return isIncluded(name) && !isExcluded(name);
+    }
+
+    @Override
+    public String[] getIncludedFiles() {
+        return includedFiles.toArray(EMPTY_STRING_ARRAY);
+    }
+
+    @Override
+    public String[] getIncludedDirectories() {
+        return includedDirectories.toArray(EMPTY_STRING_ARRAY);
+    }
+
+    @Override
+    public File getBasedir() {
+        return basedir.toFile();
+    }
+
+    private final class Visitor extends SimpleFileVisitor<Path> {
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            String name = basedir.relativize(dir).toString();
+            if (isSelected(name)) {
+                includedDirectories.add(name);
+                return FileVisitResult.CONTINUE;
+            }
+            return dir.equals(basedir) || couldHoldIncluded(name)
+                    ? FileVisitResult.CONTINUE
+                    : FileVisitResult.SKIP_SUBTREE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            // neither special files nor broken links
+            if (attrs.isRegularFile()) {
+                String name = basedir.relativize(file).toString();
+                if (isSelected(name)) {
+                    includedFiles.add(name);
+                }
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            // an unreadable directory is listed without its content, loops are skipped
+            if (!(e instanceof FileSystemLoopException) && Files.isDirectory(file)) {
+                String name = basedir.relativize(file).toString();
+                if (isSelected(name)) {
+                    includedDirectories.add(name);
+                }
+            }
+            return FileVisitResult.CONTINUE;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link FilterWrapper}s applied one after the other, whose readers are all known to copy as is the characters which
+ * cannot start a token. Text far enough from any token start goes through all the wrappers unchanged, so a single scan
+ * of the input for the token starts of all the wrappers tells which segments need to be filtered: the rest skips the
+ * readers altogether.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class FilterPipeline {
+
+    /**
+     * Past this size, in bytes or characters, a segment and the rest of the input are filtered as a whole, to bound the
+     * memory used by inputs dense in tokens.
+     */
+    static final int MAXIMUM_SEGMENT_SIZE = 1024 * 1024;
+
+    private static final int ASCII = 128;
+
+    private final FilterWrapper[] wrappers;
+
+    private final DelimiterMatcher[] matchers;
+
+    private final boolean[] asciiStarts = new boolean[ASCII];
+
+    private FilterPipeline(FilterWrapper[] wrappers, DelimiterMatcher[] matchers) {
+        this.wrappers = wrappers;
+        this.matchers = matchers;
+        for (char c = 0; c < ASCII; c++) {
+            for (DelimiterMatcher matcher : matchers) {
+                asciiStarts[c] |= matcher.isTokenStart(c);
+            }
+        }
+    }
+
+    /**
+     * @param wrappers the wrappers, in the order they apply
+     * @return the pipeline, or {@code null} if any of the wrappers may replace any character
+     */
+    static FilterPipeline of(FilterWrapper... wrappers) {
+        DelimiterMatcher[] matchers = new DelimiterMatcher[wrappers.length];
+        for (int i = 0; i < wrappers.length; i++) {
+            matchers[i] = wrappers[i].getDelimiterMatcher();
+            if (matchers[i] == null) {
+                return null;
+            }
+        }
+        return new FilterPipeline(wrappers.clone(), matchers);
+    }
+
+    /**
+     * The wrappers must be {@link RecordingFilterWrapper}s.
+     *
+     * @param expressions where to add, for each wrapper, the expressions its readers resolve with their values
+     * @return a pipeline filtering the same way as this one
+     */
+    FilterPipeline recording(List<Map<String, String>> expressions) {
+        FilterWrapper[] recording = new FilterWrapper[wrappers.length];
+        for (int i = 0; i < wrappers.length; i++) {
+            Map<String, String> resolved = new HashMap<>();
+            expressions.add(resolved);
+            recording[i] = ((RecordingFilterWrapper) wrappers[i]).recording(resolved);
+        }
+        return new FilterPipeline(recording, matchers);
+    }
+
+    /**
+     * @param c a character
+     * @return {@code true} if the character may start a token of any of the wrappers
+     */
+    boolean isTokenStart(char c) {
+        if (c < ASCII) {
+            return asciiStarts[c];
+        }
+        for (DelimiterMatcher matcher : matchers) {
+            if (matcher.isTokenStart(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if only ASCII characters may start a token
+     */
+    boolean hasOnlyAsciiTokenStarts() {
+        for (DelimiterMatcher matcher : matchers) {
+            if (!matcher.hasOnlyAsciiTokenStarts()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param reader the input
+     * @return the input filtered by all the wrappers
+     */
+    Reader getReader(Reader reader) {
+        Reader wrapped = reader;
+        for (FilterWrapper wrapper : wrappers) {
+            wrapped = wrapper.getReader(wrapped);
+        }
+        return wrapped;
+    }
+
+    /**
+     * @param unitsPerChar the maximum number of input units, bytes or characters, a character is made of
+     * @return a new tracker of the position from which all the readers are between two tokens
+     */
+    Boundary newBoundary(int unitsPerChar) {
+        int[] limits = new int[wrappers.length];
+        boolean[] singleLine = new boolean[wrappers.length];
+        for (int i = 0; i < wrappers.length; i++) {
+            limits[i] = (int) Math.min(Integer.MAX_VALUE, (long) wrappers[i].getLookaheadLimit() * unitsPerChar);
+            singleLine[i] = !matchers[i].isMultiLine();
+        }
+        return new Boundary(limits, singleLine);
+    }
+
+    /**
+     * Tells, while the input is scanned, from which position all the readers are between two tokens. After the last
+     * token start, the first reader is between two tokens once either its look-ahead limit or, if tokens cannot span
+     * lines, a new line has been reached. From there on it copies its input as is, so the same applies to the next
+     * reader, and so on.
+     */
+    static final class Boundary {
+
+        private final int[] limits;
+
+        private final boolean[] singleLine;
+
+        /**
+         * Number of readers known to be between two tokens.
+         */
+        private int settled;
+
+        /**
+         * Position from which the first unsettled reader copies its input as is.
+         */
+        private int frontier;
+
+        private Boundary(int[] limits, boolean[] singleLine) {
+            this.limits = limits;
+            this.singleLine = singleLine;
+            this.settled = limits.length;
+        }
+
+        /**
+         * @param pos the position of a unit which may start a token
+         */
+        void tokenStart(int pos) {
+            settled = 0;
+            frontier = pos + 1;
+        }
+
+        /**
+         * Must be called for every position following the last token start, in order.
+         *
+         * @param pos the position of a unit which cannot start a token
+         * @param newLine if the unit is a new line
+         * @return {@code true} if all the readers are between two tokens before this position
+         */
+        boolean isSettled(int pos, boolean newLine) {
+            while (settled < limits.length) {
+                if (pos - frontier >= limits[settled]) {
+                    frontier += limits[settled];
+                } else if (newLine && singleLine[settled] && pos >= frontier) {
+                    // settled right after the new line
+                    frontier = pos + 1;
+                    settled++;
+                    return false;
+                } else {
+                    return false;
+                }
+                settled++;
+            }
+            return true;
+        }
+
+        /**
+         * @param n the number of units the input buffer has been shifted left by
+         */
+        void shift(int n) {
+            frontier -= n;
+        }
+    }
+}
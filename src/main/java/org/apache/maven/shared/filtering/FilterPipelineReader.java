@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A {@link Reader} giving the same output as the readers of a {@link FilterPipeline} stacked on each other, in one
+ * scan of its input: the text between tokens is returned as is, only the segments around tokens go through the
+ * readers.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class FilterPipelineReader extends Reader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader source;
+
+    private final FilterPipeline pipeline;
+
+    private final FilterPipeline.Boundary boundary;
+
+    private char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * Characters before this index have been returned or filtered.
+     */
+    private int done;
+
+    /**
+     * Characters before this index have been scanned.
+     */
+    private int pos;
+
+    private int end;
+
+    private boolean inSegment;
+
+    private boolean sourceEof;
+
+    /**
+     * The filtered segment being returned.
+     */
+    private Reader pending;
+
+    /**
+     * Once a segment gets too large, the rest of the input filtered as a whole.
+     */
+    private Reader remainder;
+
+    FilterPipelineReader(Reader source, FilterPipeline pipeline) {
+        this.source = source;
+        this.pipeline = pipeline;
+        this.boundary = pipeline.newBoundary(1);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            if (remainder != null) {
+                return remainder.read(cbuf, off, len);
+            }
+            if (pending != null) {
+                int n = pending.read(cbuf, off, len);
+                if (n != -1) {
+                    return n;
+                }
+                pending = null;
+            }
+            if (!inSegment && done < pos) {
+                // text between tokens
+                int n = Math.min(pos - done, len);
+                System.arraycopy(buffer, done, cbuf, off, n);
+                done += n;
+                return n;
+            }
+            if (pos < end) {
+                scan();
+            } else if (sourceEof) {
+                if (!inSegment) {
+                    return -1;
+                }
+                endSegment();
+            } else if (inSegment && pos - done >= FilterPipeline.MAXIMUM_SEGMENT_SIZE) {
+                remainder = pipeline.getReader(new Remainder(Arrays.copyOfRange(buffer, done, end), source));
+            } else {
+                fill();
+            }
+        }
+    }
+
+    private void scan() {
+        if (!inSegment) {
+            while (pos < end && !pipeline.isTokenStart(buffer[pos])) {
+                pos++;
+            }
+            if (pos == end || done < pos) {
+                return;
+            }
+            inSegment = true;
+        }
+        while (pos < end) {
+            char c = buffer[pos];
+            if (pipeline.isTokenStart(c)) {
+                boundary.tokenStart(pos);
+            } else if (boundary.isSettled(pos, c == '\n')) {
+                endSegment();
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void endSegment() {
+        // the segment is not overwritten before being read: the buffer is only compacted once pending is exhausted
+        pending = pipeline.getReader(new CharArrayReader(buffer, done, pos - done));
+        done = pos;
+        inSegment = false;
+    }
+
+    private void fill() throws IOException {
+        if (done > 0) {
+            System.arraycopy(buffer, done, buffer, 0, end - done);
+            end -= done;
+            pos -= done;
+            boundary.shift(done);
+            done = 0;
+        }
+        if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int nRead = source.read(buffer, end, buffer.length - end);
+        if (nRead == -1) {
+            sourceEof = true;
+        } else {
+            end += nRead;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /**
+     * The characters of a segment followed by the rest of the source.
+     */
+    private static final class Remainder extends Reader {
+
+        private final char[] segment;
+
+        private int index;
+
+        private final Reader source;
+
+        Remainder(char[] segment, Reader source) {
+            this.segment = segment;
+            this.source = source;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (index < segment.length) {
+                int n = Math.min(segment.length - index, len);
+                System.arraycopy(segment, index, cbuf, off, n);
+                index += n;
+                return n;
+            }
+            return source.read(cbuf, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
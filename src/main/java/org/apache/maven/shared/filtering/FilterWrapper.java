@@ -31,4 +31,29 @@ public abstract class FilterWrapper {
      * @return the Reader instance
      */
     public abstract Reader getReader(Reader fileReader);
+
+    /**
+     * Tells which characters the readers of this wrapper may replace, all the other characters being copied as is,
+     * which allows to copy the text in between without decoding it.
+     *
+     * @return the compiled delimiters, or {@code null} if any character may be replaced
+     */
+    DelimiterMatcher getDelimiterMatcher() {
+        return null;
+    }
+
+    /**
+     * @return the maximum number of characters read to replace a token, starting with a character accepted by
+     *         {@link #getDelimiterMatcher()}
+     */
+    int getLookaheadLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return the cache of the segments of the files filtered by this wrapper, {@code null} for none
+     */
+    SegmentCache getSegmentCache() {
+        return null;
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Notified of what the filtering does, file by file and expression by expression, when set on the request.
+ * <p>
+ * The copy of a file starts with {@link #fileStarted(Path, Path, boolean)} and ends with either
+ * {@link #fileFinished(Path, Path, boolean, Duration, long, long)} or, if the destination turns out to be up to date,
+ * {@link #fileSkipped(Path, Path)}. A file whose destination is known to be up to date beforehand is only skipped. A
+ * failed copy has no end.
+ * <p>
+ * The files of a {@link MavenResourcesExecution} with a parallelism greater than one are copied concurrently, so the
+ * methods may be called by several threads at once. They are called by the threads doing the work, so they should
+ * return quickly.
+ *
+ * @since 4.0.0-beta-2
+ */
+public interface FilteringListener {
+
+    /**
+     * The value source of the properties: the additional properties, the user and system properties of the session,
+     * the properties of the model and those read from the filters.
+     */
+    String PROPERTIES = "properties";
+
+    /**
+     * The value source of the project, such as {@code project.version}.
+     */
+    String PROJECT = "project";
+
+    /**
+     * The value source of the model of the project.
+     */
+    String MODEL = "model";
+
+    /**
+     * The value source of the session, such as {@code session.executionRootDirectory}.
+     */
+    String SESSION = "session";
+
+    /**
+     * The value source of the settings, such as {@code settings.offline}.
+     */
+    String SETTINGS = "settings";
+
+    /**
+     * The value source of {@code localRepository}.
+     */
+    String LOCAL_REPOSITORY = "localRepository";
+
+    /**
+     * @param source the file to copy
+     * @param destination the destination file
+     * @param filtering whether the file is to be filtered
+     */
+    default void fileStarted(Path source, Path destination, boolean filtering) {}
+
+    /**
+     * @param source the file copied
+     * @param destination the destination file, left untouched if it already had the same content
+     * @param filtered whether the file has been filtered rather than copied as is
+     * @param duration the time spent copying the file, its permissions aside
+     * @param bytesRead the number of bytes read from the file
+     * @param bytesWritten the number of bytes copied or filtered to the destination
+     */
+    default void fileFinished(
+            Path source, Path destination, boolean filtered, Duration duration, long bytesRead, long bytesWritten) {}
+
+    /**
+     * @param source the file not copied
+     * @param destination the destination file, up to date
+     */
+    default void fileSkipped(Path source, Path destination) {}
+
+    /**
+     * Called for each expression the filters based on {@link BaseFilter} replace, every time they do: an expression
+     * repeated in several places or files is told as many times, while the expressions found in its value are not.
+     * The expressions of a file whose destination is up to date, or which is filtered from the segments of a
+     * {@link SegmentCache}, are told only if their values have to be checked.
+     *
+     * @param expression the expression, without its delimiters
+     * @param value the value found, before any post processing, {@code null} if none was found
+     * @param valueSource the value source which found it, one of the constants of this interface, {@code null} if
+     *            none did
+     */
+    default void expressionResolved(String expression, String value, String valueSource) {}
+}
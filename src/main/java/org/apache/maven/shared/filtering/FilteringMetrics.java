@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What the filtering of resources did and where its time went: the files scanned, copied as is, filtered and skipped
+ * as up to date, the bytes read and written, the expressions resolved, the values found in an {@link ExpressionCache}
+ * and the files filtered from a {@link SegmentCache}, with the time spent scanning the resource directories, reading
+ * and interpolating the files, writing them and copying their permissions.
+ * <p>
+ * The metrics are collected when set on the request, the same instance accumulating the metrics of all the requests
+ * it is set on. This class is thread-safe, the files copied concurrently updating it without contending for a lock.
+ *
+ * @since 4.0.0-beta-2
+ */
+public final class FilteringMetrics {
+
+    private final LongAdder scannedFiles = new LongAdder();
+
+    private final LongAdder copiedFiles = new LongAdder();
+
+    private final LongAdder filteredFiles = new LongAdder();
+
+    private final LongAdder skippedFiles = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private final LongAdder resolvedExpressions = new LongAdder();
+
+    private final LongAdder expressionCacheHits = new LongAdder();
+
+    private final LongAdder segmentCacheHits = new LongAdder();
+
+    private final LongAdder scanningNanos = new LongAdder();
+
+    private final LongAdder filteringNanos = new LongAdder();
+
+    private final LongAdder writingNanos = new LongAdder();
+
+    private final LongAdder permissionCopyingNanos = new LongAdder();
+
+    /**
+     * @return the number of files included by the scanners of the resource directories
+     */
+    public long getScannedFileCount() {
+        return scannedFiles.sum();
+    }
+
+    /**
+     * @return the number of files copied without filtering
+     */
+    public long getCopiedFileCount() {
+        return copiedFiles.sum();
+    }
+
+    /**
+     * @return the number of files filtered
+     */
+    public long getFilteredFileCount() {
+        return filteredFiles.sum();
+    }
+
+    /**
+     * @return the number of files not written, their destination being up to date
+     */
+    public long getSkippedFileCount() {
+        return skippedFiles.sum();
+    }
+
+    /**
+     * @return the number of bytes read from the files copied, filtered or compared to their destination
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return the number of bytes copied or filtered to the destinations, those already having the same content being
+     *         left untouched
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return the number of expressions resolved by the default filter wrappers
+     */
+    public long getResolvedExpressionCount() {
+        return resolvedExpressions.sum();
+    }
+
+    /**
+     * @return the number of expressions whose value, or lack thereof, was found in an {@link ExpressionCache}
+     */
+    public long getExpressionCacheHitCount() {
+        return expressionCacheHits.sum();
+    }
+
+    /**
+     * @return the number of files filtered from their segments cached by a {@link SegmentCache}
+     */
+    public long getSegmentCacheHitCount() {
+        return segmentCacheHits.sum();
+    }
+
+    /**
+     * @return the time spent scanning the resource directories
+     */
+    public Duration getScanningTime() {
+        return Duration.ofNanos(scanningNanos.sum());
+    }
+
+    /**
+     * @return the time spent reading and interpolating the files, or comparing them to their destination
+     */
+    public Duration getFilteringTime() {
+        return Duration.ofNanos(filteringNanos.sum());
+    }
+
+    /**
+     * @return the time spent writing the destinations
+     */
+    public Duration getWritingTime() {
+        return Duration.ofNanos(writingNanos.sum());
+    }
+
+    /**
+     * @return the time spent copying the permissions of the files to their destination
+     */
+    public Duration getPermissionCopyingTime() {
+        return Duration.ofNanos(permissionCopyingNanos.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "scanned " + getScannedFileCount() + " files in " + getScanningTime().toMillis() + " ms, copied "
+                + getCopiedFileCount() + ", filtered " + getFilteredFileCount() + " (" + getSegmentCacheHitCount()
+                + " from cache), skipped " + getSkippedFileCount() + ", read " + getBytesRead() + " bytes, wrote "
+                + getBytesWritten() + " bytes, resolved " + getResolvedExpressionCount() + " expressions ("
+                + getExpressionCacheHitCount() + " from cache), " + getFilteringTime().toMillis()
+                + " ms reading and interpolating, " + getWritingTime().toMillis() + " ms writing, "
+                + getPermissionCopyingTime().toMillis() + " ms copying permissions";
+    }
+
+    void scanned(int files, long nanos) {
+        scannedFiles.add(files);
+        scanningNanos.add(nanos);
+    }
+
+    void skipped() {
+        skippedFiles.increment();
+    }
+
+    void resolved() {
+        resolvedExpressions.increment();
+    }
+
+    void expressionCacheHit() {
+        expressionCacheHits.increment();
+    }
+
+    void permissionsCopied(long nanos) {
+        permissionCopyingNanos.add(nanos);
+    }
+
+    /**
+     * @param filtered whether the file has been filtered rather than copied as is
+     * @param cacheHit whether the file has been filtered from its cached segments
+     * @param read the number of bytes read
+     * @param written the number of bytes written
+     * @param filtering the time spent reading and interpolating, in nanoseconds
+     * @param writing the time spent writing, in nanoseconds
+     */
+    void finished(boolean filtered, boolean cacheHit, long read, long written, long filtering, long writing) {
+        (filtered ? filteredFiles : copiedFiles).increment();
+        if (cacheHit) {
+            segmentCacheHits.increment();
+        }
+        bytesRead.add(read);
+        bytesWritten.add(written);
+        filteringNanos.add(filtering);
+        writingNanos.add(writing);
+    }
+
+    /**
+     * @param read the number of bytes read to tell the destination is up to date
+     * @param filtering the time spent reading them, in nanoseconds
+     */
+    void skipped(long read, long filtering) {
+        skippedFiles.increment();
+        bytesRead.add(read);
+        filteringNanos.add(filtering);
+    }
+}
@@ -18,17 +18,24 @@
  */
 package org.apache.maven.shared.filtering;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Locale;
 import java.util.StringTokenizer;
 import java.util.regex.Pattern;
@@ -287,40 +294,202 @@ public final class FilteringUtils {
     }
 
     /**
-     * <b>If wrappers is null or empty, the file will be copy only if to.lastModified() &lt; from.lastModified() or if
-     * overwrite is true</b>.
+     * <b>If wrappers is null or empty and overwrite is false, a destination of the same size as the file which is not
+     * older than it is only replaced if its content differs</b>.
      *
      * @param from the file to copy
      * @param to the destination file
      * @param encoding the file output encoding (only if wrappers is not empty)
      * @param wrappers array of {@link FilterWrapper}
+     * @param overwrite whether to copy the file without comparing it to the destination (only if wrappers is empty)
      * @throws IOException if an IO error occurs during copying or filtering
      */
     public static void copyFile(Path from, Path to, String encoding, FilterWrapper[] wrappers, boolean overwrite)
             throws IOException {
-        if (wrappers == null || wrappers.length == 0) {
-            try (OutputStream os = new CachingOutputStream(to)) {
-                Files.copy(from, os);
-            }
+        copyFile(from, to, encoding, wrappers, overwrite, null, null);
+    }
+
+    /**
+     * Same as {@link #copyFile(Path, Path, String, FilterWrapper[], boolean)}, the copy being metered and listened
+     * to.
+     *
+     * @param from the file to copy
+     * @param to the destination file
+     * @param encoding the file output encoding (only if wrappers is not empty)
+     * @param wrappers array of {@link FilterWrapper}
+     * @param overwrite whether to copy the file even if the destination looks up to date (only if wrappers is empty)
+     * @param metrics where to count the file, its bytes and the time spent, {@code null} not to
+     * @param listener whom to tell about the copy of the file, {@code null} for none
+     * @throws IOException if an IO error occurs during copying or filtering
+     * @since 4.0.0-beta-2
+     */
+    public static void copyFile(
+            Path from,
+            Path to,
+            String encoding,
+            FilterWrapper[] wrappers,
+            boolean overwrite,
+            FilteringMetrics metrics,
+            FilteringListener listener)
+            throws IOException {
+        boolean filtering = wrappers != null && wrappers.length > 0;
+        FileMeter meter = FileMeter.start(from, to, filtering, metrics, listener);
+        if (!filtering) {
+            copyBytes(from, to, overwrite, meter);
         } else {
             Charset charset = charset(encoding);
-
-            try (Reader fileReader = Files.newBufferedReader(from, charset)) {
-                Reader wrapped = fileReader;
-                for (FilterWrapper wrapper : wrappers) {
-                    wrapped = wrapper.getReader(wrapped);
+            FilterPipeline pipeline = FilterPipeline.of(wrappers);
+
+            SegmentCache segmentCache = pipeline != null ? SegmentCache.of(wrappers) : null;
+            boolean cacheHit = false;
+
+            if (pipeline != null
+                    && ByteLevelFiltering.supports(charset, pipeline)
+                    && segmentCache != null
+                    && segmentCache.accepts(from)) {
+                // only the segments whose expressions changed need to be filtered again
+                byte[] content = Files.readAllBytes(from);
+                try (OutputStream os = newOutputStream(to, meter)) {
+                    cacheHit = segmentCache.filter(content, os, charset, pipeline, wrappers);
+                }
+                if (meter != null) {
+                    meter.read(content.length);
                 }
-                try (Writer writer = new CachingWriter(to, charset)) {
-                    char[] buffer = new char[COPY_BUFFER_LENGTH];
-                    int nRead;
-                    while ((nRead = wrapped.read(buffer, 0, COPY_BUFFER_LENGTH)) >= 0) {
-                        writer.write(buffer, 0, nRead);
+            } else if (pipeline != null && ByteLevelFiltering.supports(charset, pipeline)) {
+                // only the bytes around the tokens need to be decoded
+                try (InputStream is = newInputStream(from, meter);
+                        OutputStream os = newOutputStream(to, meter)) {
+                    ByteLevelFiltering.filter(is, os, charset, pipeline);
+                }
+            } else {
+                try (Reader fileReader = newReader(from, charset, meter)) {
+                    Reader wrapped = filterWrap(fileReader, pipeline, wrappers);
+                    try (Writer writer = newWriter(to, charset, meter)) {
+                        char[] buffer = new char[COPY_BUFFER_LENGTH];
+                        int nRead;
+                        while ((nRead = wrapped.read(buffer, 0, COPY_BUFFER_LENGTH)) >= 0) {
+                            writer.write(buffer, 0, nRead);
+                        }
                     }
                 }
             }
+            if (meter != null) {
+                meter.filtered(cacheHit);
+            }
         }
 
+        long start = System.nanoTime();
         copyFilePermissions(from, to);
+        if (metrics != null) {
+            metrics.permissionsCopied(System.nanoTime() - start);
+        }
+    }
+
+    private static InputStream newInputStream(Path from, FileMeter meter) throws IOException {
+        InputStream is = Files.newInputStream(from);
+        return meter != null ? meter.meter(is) : is;
+    }
+
+    private static OutputStream newOutputStream(Path to, FileMeter meter) throws IOException {
+        OutputStream os = new CachingOutputStream(to);
+        return meter != null ? meter.meter(os) : os;
+    }
+
+    private static Reader newReader(Path from, Charset charset, FileMeter meter) throws IOException {
+        if (meter == null) {
+            return Files.newBufferedReader(from, charset);
+        }
+        // reporting malformed input like Files.newBufferedReader
+        return new BufferedReader(new InputStreamReader(newInputStream(from, meter), charset.newDecoder()));
+    }
+
+    private static Writer newWriter(Path to, Charset charset, FileMeter meter) throws IOException {
+        if (meter == null) {
+            return new CachingWriter(to, charset);
+        }
+        return new OutputStreamWriter(newOutputStream(to, meter), charset);
+    }
+
+    /**
+     * Copies a file as is. Unless overwritten, a destination of the same size which is not older than the file may be a
+     * copy of it, or an output filtered from it with values as long as their expressions, so it is compared to the file
+     * and left untouched when it has the same content. Otherwise the bytes are transferred from channel to channel,
+     * which the platform may do without copying them to the heap.
+     */
+    private static void copyBytes(Path from, Path to, boolean overwrite, FileMeter meter) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(from, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) {
+            // the size of special files is meaningless
+            long copied;
+            try (OutputStream os = newOutputStream(to, meter)) {
+                copied = Files.copy(from, os);
+            }
+            if (meter != null) {
+                meter.read(copied);
+                meter.copied();
+            }
+            return;
+        }
+        if (!overwrite && mayHaveSameContent(attributes, to) && Files.mismatch(from, to) == -1) {
+            if (meter != null) {
+                meter.read(attributes.size());
+                meter.skipped();
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        long position = 0;
+        try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(
+                        to,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, out);
+                if (transferred == 0) {
+                    // truncated meanwhile
+                    break;
+                }
+                position += transferred;
+            }
+        }
+        if (meter != null) {
+            meter.read(position);
+            meter.written(position, System.nanoTime() - start);
+            meter.copied();
+        }
+    }
+
+    private static boolean mayHaveSameContent(BasicFileAttributes source, Path to) throws IOException {
+        try {
+            BasicFileAttributes destination = Files.readAttributes(to, BasicFileAttributes.class);
+            return destination.size() == source.size()
+                    && destination.lastModifiedTime().compareTo(source.lastModifiedTime()) >= 0;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param reader the reader to filter
+     * @param wrappers the wrappers to apply, in order
+     * @return the filtered reader, scanning the input once when all the wrappers allow it
+     */
+    static Reader filterWrap(Reader reader, FilterWrapper... wrappers) {
+        return filterWrap(reader, FilterPipeline.of(wrappers), wrappers);
+    }
+
+    private static Reader filterWrap(Reader reader, FilterPipeline pipeline, FilterWrapper[] wrappers) {
+        if (pipeline != null && wrappers.length > 0) {
+            return new FilterPipelineReader(reader, pipeline);
+        }
+        Reader wrapped = reader;
+        for (FilterWrapper wrapper : wrappers) {
+            wrapped = wrapper.getReader(wrapped);
+        }
+        return wrapped;
     }
 
     /**
@@ -349,7 +518,7 @@ public final class FilteringUtils {
         }
     }
 
-    private static Charset charset(String encoding) {
+    static Charset charset(String encoding) {
         if (encoding == null || encoding.isEmpty()) {
             return Charset.defaultCharset();
         } else {
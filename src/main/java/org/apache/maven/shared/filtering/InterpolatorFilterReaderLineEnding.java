@@ -18,7 +18,6 @@
  */
 package org.apache.maven.shared.filtering;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 
@@ -77,6 +76,13 @@ public class InterpolatorFilterReaderLineEnding extends AbstractFilterReaderLine
 
     private boolean eof = false;
 
+    private final Lookahead lookahead;
+
+    /**
+     * reused for every token
+     */
+    private final StringBuilder key = new StringBuilder();
+
     /**
      * @param in reader to use
      * @param interpolator interpolator instance to use
@@ -108,8 +114,10 @@ public class InterpolatorFilterReaderLineEnding extends AbstractFilterReaderLine
             String endToken,
             RecursionInterceptor ri,
             boolean supportMultiLineFiltering) {
-        // wrap our own buffer, so we can use mark/reset safely.
-        super(new BufferedReader(in));
+        super(in);
+
+        // our own buffer, so we can peek and roll back safely.
+        this.lookahead = new Lookahead(in);
 
         this.interpolator = interpolator;
 
@@ -187,16 +195,19 @@ public class InterpolatorFilterReaderLineEnding extends AbstractFilterReaderLine
             return -1;
         }
 
+        Lookahead in = lookahead;
         in.mark(markLength);
 
-        int ch = in.read();
+        int ch = in.peek();
         if (ch == -1 || (ch == '\n' && !supportMultiLineFiltering)) {
+            in.commit();
             return ch;
         }
 
         boolean inEscape = useEscape && ch == getEscapeString().charAt(0);
 
-        StringBuilder key = new StringBuilder();
+        StringBuilder key = this.key;
+        key.setLength(0);
 
         // have we found an escape string?
         if (inEscape) {
@@ -211,7 +222,7 @@ public class InterpolatorFilterReaderLineEnding extends AbstractFilterReaderLine
                     break;
                 }
 
-                ch = in.read();
+                ch = in.peek();
             }
         }
 
@@ -228,12 +239,12 @@ public class InterpolatorFilterReaderLineEnding extends AbstractFilterReaderLine
                 foundToken = true;
             }
 
-            ch = in.read();
+            ch = in.peek();
         }
 
         in.reset();
         in.skip(key.length());
-        ch = in.read();
+        ch = in.peek();
 
         // escape means no luck, prevent parsing of the escaped character, and return
         if (inEscape) {
@@ -249,6 +260,7 @@ public class InterpolatorFilterReaderLineEnding extends AbstractFilterReaderLine
             replaceData = key.toString();
             replaceIndex = key.length();
 
+            in.commit();
             return read();
         }
 
@@ -264,6 +276,7 @@ public class InterpolatorFilterReaderLineEnding extends AbstractFilterReaderLine
         key.append(beginToken);
         in.reset();
         in.skip(beginToken.length());
+        // no way back from here, consume as we go
         ch = in.read();
 
         int endTokenSize = endToken.length();
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.codehaus.plexus.interpolation.ValueSource;
+
+/**
+ * A read-only view of several maps of properties, the value of a property being taken from the first map which has
+ * one. It gives the same values as the maps copied into a single {@link java.util.Properties} in reverse order, without
+ * copying them.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class LayeredPropertiesValueSource implements ValueSource {
+
+    private final List<Map<?, ?>> layers;
+
+    /**
+     * The hash of the layers, {@code 0} until computed: hashing all the properties is only needed to key an
+     * {@link ExpressionCache}.
+     */
+    private int hash;
+
+    /**
+     * @param layers the maps, the first one wins, {@code null} ones are ignored
+     */
+    LayeredPropertiesValueSource(Map<?, ?>... layers) {
+        List<Map<?, ?>> list = new ArrayList<>(layers.length);
+        for (Map<?, ?> layer : layers) {
+            if (layer != null && !layer.isEmpty()) {
+                list.add(layer);
+            }
+        }
+        this.layers = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @param key the name of a property
+     * @return the value of the property, or {@code null} if it has none or if its value is not a string
+     */
+    String getProperty(String key) {
+        for (Map<?, ?> layer : layers) {
+            Object value = layer.get(key);
+            if (value != null) {
+                // hides the lower layers, as if it had been copied over them
+                return value instanceof String ? (String) value : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the names of the properties with a string value, sorted
+     */
+    Set<String> stringPropertyNames() {
+        Set<String> names = new TreeSet<>();
+        for (Map<?, ?> layer : layers) {
+            for (Object key : layer.keySet()) {
+                if (key instanceof String && getProperty((String) key) != null) {
+                    names.add((String) key);
+                }
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public Object getValue(String expression) {
+        return getProperty(expression);
+    }
+
+    @Override
+    public List<Object> getFeedback() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void clearFeedback() {
+        // no feedback
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LayeredPropertiesValueSource)) {
+            return false;
+        }
+        LayeredPropertiesValueSource other = (LayeredPropertiesValueSource) o;
+        return hashCode() == other.hashCode() && layers.equals(other.layers);
+    }
+
+    @Override
+    public int hashCode() {
+        // racy but idempotent, like String
+        int h = hash;
+        if (h == 0) {
+            h = layers.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+}
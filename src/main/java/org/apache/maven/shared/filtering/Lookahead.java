@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reusable look-ahead cursor over a {@link Reader}, backed by a ring buffer. Characters are peeked from the current
+ * position up to a limit, simulating eof when this limit is reached, and are then either committed or rolled back.
+ * Unlike {@link BoundedReader} no object is created per look-ahead.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class Lookahead {
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private final Reader source;
+
+    private char[] ring = new char[INITIAL_CAPACITY];
+
+    private int mask = INITIAL_CAPACITY - 1;
+
+    /**
+     * Ring index of the first character not yet consumed.
+     */
+    private int head;
+
+    /**
+     * Number of buffered characters, starting at {@link #head}.
+     */
+    private int count;
+
+    /**
+     * Number of characters peeked since the last {@link #mark(int)}, {@link #reset()} or {@link #commit()}.
+     */
+    private int cursor;
+
+    private int readAheadLimit;
+
+    private boolean sourceEof;
+
+    Lookahead(Reader source) {
+        this.source = source;
+    }
+
+    /**
+     * Starts a new look-ahead at the current position.
+     *
+     * @param theReadAheadLimit the maximum number of characters which can be peeked
+     */
+    void mark(int theReadAheadLimit) {
+        readAheadLimit = theReadAheadLimit;
+        cursor = 0;
+        if (theReadAheadLimit > ring.length) {
+            grow(theReadAheadLimit);
+        }
+    }
+
+    /**
+     * @return the next character of the look-ahead, or -1 if the end of the stream or the limit has been reached
+     * @throws IOException in case of a failure.
+     */
+    int peek() throws IOException {
+        if (cursor >= readAheadLimit) {
+            return -1;
+        }
+        while (cursor >= count) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        return ring[(head + cursor++) & mask];
+    }
+
+    /**
+     * Rolls the look-ahead back to the current position.
+     */
+    void reset() {
+        cursor = 0;
+    }
+
+    /**
+     * Rolls the look-ahead back to the given number of characters after the current position.
+     *
+     * @param n the number of characters, must not exceed the characters peeked so far
+     */
+    void skip(int n) {
+        cursor = Math.min(n, count);
+    }
+
+    /**
+     * Consumes all the characters peeked so far.
+     */
+    void commit() {
+        head = (head + cursor) & mask;
+        count -= cursor;
+        cursor = 0;
+    }
+
+    /**
+     * Consumes the characters peeked so far and the next one, regardless of the limit.
+     *
+     * @return the consumed character, or -1 if the end of the stream has been reached
+     * @throws IOException in case of a failure.
+     */
+    int read() throws IOException {
+        commit();
+        while (count == 0) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        char ch = ring[head];
+        head = (head + 1) & mask;
+        count--;
+        return ch;
+    }
+
+    /**
+     * Consumes characters into the given array until a character which may start a token is found.
+     *
+     * @param cbuf destination buffer
+     * @param off offset at which to start storing characters
+     * @param len maximum number of characters to copy
+     * @param matcher tells the characters which must not be consumed
+     * @return the number of characters copied, 0 if the next character may start a token, or -1 if the end of the
+     *         stream has been reached
+     * @throws IOException in case of a failure.
+     */
+    int read(char[] cbuf, int off, int len, DelimiterMatcher matcher) throws IOException {
+        commit();
+        while (count == 0) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        // only the contiguous part of the ring, the caller asks again for the remainder
+        int available = Math.min(Math.min(count, ring.length - head), len);
+        int n = 0;
+        while (n < available && !matcher.isTokenStart(ring[head + n])) {
+            n++;
+        }
+        System.arraycopy(ring, head, cbuf, off, n);
+        head = (head + n) & mask;
+        count -= n;
+        return n;
+    }
+
+    /**
+     * Reads more characters from the source into the free part of the ring.
+     *
+     * @return {@code false} if the end of the stream has been reached
+     */
+    private boolean fill() throws IOException {
+        if (sourceEof) {
+            return false;
+        }
+        if (count == ring.length) {
+            grow(ring.length * 2);
+        }
+        int tail = (head + count) & mask;
+        int free = tail >= head && count < ring.length ? ring.length - tail : head - tail;
+        int nRead = source.read(ring, tail, free);
+        if (nRead == -1) {
+            sourceEof = true;
+            return false;
+        }
+        count += nRead;
+        return true;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Integer.highestOneBit(minCapacity - 1) << 1;
+        char[] grown = new char[capacity];
+        int first = Math.min(count, ring.length - head);
+        System.arraycopy(ring, head, grown, 0, first);
+        System.arraycopy(ring, 0, grown, first, count - first);
+        ring = grown;
+        mask = capacity - 1;
+        head = 0;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.plexus.util.MatchPatterns;
+
+/**
+ * The include and exclude patterns of the resources, compiled once for all the resources sharing them. Compiled
+ * patterns are immutable, so they can be used by several scanners at the same time.
+ * <p>
+ * This class is thread-safe. Once the maximum size is reached, new pattern sets are compiled but no longer cached.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class MatchPatternsCache {
+
+    /**
+     * The maximum number of cached pattern sets.
+     */
+    static final int MAXIMUM_SIZE = 1000;
+
+    private final ConcurrentMap<List<String>, MatchPatterns> patterns = new ConcurrentHashMap<>();
+
+    /**
+     * @param sources the patterns, normalized as by a scanner
+     * @return the compiled patterns
+     */
+    MatchPatterns get(String[] sources) {
+        List<String> key = Arrays.asList(sources.clone());
+        MatchPatterns compiled = patterns.get(key);
+        if (compiled == null) {
+            compiled = MatchPatterns.from(sources);
+            if (patterns.size() < MAXIMUM_SIZE) {
+                patterns.putIfAbsent(key, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * @return the number of cached pattern sets
+     */
+    int size() {
+        return patterns.size();
+    }
+}
@@ -39,6 +39,10 @@ public class MavenFileFilterRequest extends AbstractMavenFilteringRequest {
 
     private String encoding;
 
+    private List<FilterWrapper> filterWrappers;
+
+    private boolean overwrite;
+
     /**
      * The constructor.
      */
@@ -135,4 +139,37 @@ public class MavenFileFilterRequest extends AbstractMavenFilteringRequest {
     public void setFiltering(boolean filtering) {
         this.filtering = filtering;
     }
+
+    /**
+     * @return the wrappers filtering the file, {@code null} for the default ones
+     * @since 4.0.0-beta-2
+     */
+    public List<FilterWrapper> getFilterWrappers() {
+        return filterWrappers;
+    }
+
+    /**
+     * @param filterWrappers the wrappers filtering the file, {@code null} for the default ones
+     * @since 4.0.0-beta-2
+     */
+    public void setFilterWrappers(List<FilterWrapper> filterWrappers) {
+        this.filterWrappers = filterWrappers;
+    }
+
+    /**
+     * @return {@code true} to copy a file which is not filtered without comparing it to the destination
+     * @since 4.0.0-beta-2
+     */
+    public boolean isOverwrite() {
+        return overwrite;
+    }
+
+    /**
+     * @param overwrite {@code true} to copy a file which is not filtered without comparing it to the destination, which
+     *            is otherwise left untouched when it has the same size, is not older and has the same content
+     * @since 4.0.0-beta-2
+     */
+    public void setOverwrite(boolean overwrite) {
+        this.overwrite = overwrite;
+    }
 }
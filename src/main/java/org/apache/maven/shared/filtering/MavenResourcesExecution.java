@@ -21,12 +21,14 @@ package org.apache.maven.shared.filtering;
 import java.io.Reader;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.maven.api.Project;
 import org.apache.maven.api.Session;
 import org.codehaus.plexus.interpolation.StringSearchInterpolator;
 import org.codehaus.plexus.interpolation.ValueSource;
+import org.codehaus.plexus.interpolation.multi.DelimiterSpecification;
 
 /**
  * A bean to configure a resources filtering execution.
@@ -112,6 +114,27 @@ public class MavenResourcesExecution extends AbstractMavenFilteringRequest {
      */
     private boolean flatten = false;
 
+    /**
+     * The number of files copied at the same time, {@code 1} to copy them one after the other.
+     *
+     * @since 4.0.0-beta-2
+     */
+    private int parallelism = 1;
+
+    /**
+     * Where the outputs are recorded from one execution to the next, {@code null} not to record them.
+     *
+     * @since 4.0.0-beta-2
+     */
+    private Path manifestFile;
+
+    /**
+     * Copy without filtering the files of filtered resources whose content looks binary.
+     *
+     * @since 4.0.0-beta-2
+     */
+    private boolean detectBinaryFiles;
+
     /**
      * Do nothing.
      */
@@ -293,6 +316,9 @@ public class MavenResourcesExecution extends AbstractMavenFilteringRequest {
             final String escapeString,
             final boolean multiLineFiltering) {
         addFilterWrapper(new FilterWrapper() {
+            private final DelimiterMatcher delimiterMatcher = new DelimiterMatcher(
+                    Collections.singleton(new DelimiterSpecification(startExp, endExp)), null, multiLineFiltering);
+
             @Override
             public Reader getReader(Reader reader) {
                 StringSearchInterpolator propertiesInterpolator = new StringSearchInterpolator(startExp, endExp);
@@ -303,6 +329,11 @@ public class MavenResourcesExecution extends AbstractMavenFilteringRequest {
                 interpolatorFilterReader.setInterpolateWithPrefixPattern(false);
                 return interpolatorFilterReader;
             }
+
+            @Override
+            DelimiterMatcher getDelimiterMatcher() {
+                return delimiterMatcher;
+            }
         });
     }
 
@@ -386,6 +417,85 @@ public class MavenResourcesExecution extends AbstractMavenFilteringRequest {
         this.flatten = flatten;
     }
 
+    /**
+     * The number of files copied at the same time, {@code 1} by default.
+     *
+     * @return {@link #parallelism}
+     * @since 4.0.0-beta-2
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * The number of files copied at the same time. With more than one, the files of each resource are copied
+     * concurrently once they have all been listed, so the filter wrappers and the build context must be thread-safe;
+     * the default filter wrappers are. The destinations and the collisions between them are still decided in the
+     * order of the files, and the reported failure is the one of the first file which could not be copied, but the
+     * messages logged while copying the files may come in any order.
+     *
+     * @param parallelism the number of files copied at the same time, {@code 1} to copy them one after the other
+     * @since 4.0.0-beta-2
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * The file the outputs are recorded in from one execution to the next, {@code null} by default.
+     *
+     * @return {@link #manifestFile}
+     * @since 4.0.0-beta-2
+     */
+    public Path getManifestFile() {
+        return manifestFile;
+    }
+
+    /**
+     * The file the outputs are recorded in from one execution to the next. Without incremental build, a file whose
+     * source, output and filtering are the same as when it was last copied is then not copied again, without opening
+     * it. The filtering of a file is the same when the filter wrappers are configured the same way and the expressions
+     * the file references have the same values, so changing a property only filters again the files referencing it.
+     * This can only be told for the default filter wrappers without interpolator customizer: with other wrappers, the
+     * filtered files are always copied. The filtered files known to hold no expression are copied without being
+     * decoded. The manifest should not be in the output
+     * directory, not to be packaged with the resources: the build directory is a better place. Files are always
+     * copied when {@link #isOverwrite() overwrite} is set.
+     *
+     * @param manifestFile the manifest, {@code null} not to keep one
+     * @since 4.0.0-beta-2
+     */
+    public void setManifestFile(Path manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * Copy without filtering the files of filtered resources whose content looks binary, {@code false} by default.
+     *
+     * @return {@link #detectBinaryFiles}
+     * @since 4.0.0-beta-2
+     */
+    public boolean isDetectBinaryFiles() {
+        return detectBinaryFiles;
+    }
+
+    /**
+     * Copy without filtering the files of filtered resources whose content looks binary, whatever their extension:
+     * their first block has a NUL byte, or starts with the magic number of a common binary format such as ZIP, PNG or
+     * WOFF. Filtering such a file decodes it as text, which corrupts it. The NUL bytes are not taken into account when
+     * the encoding is UTF-16 or UTF-32. Listing the extensions in {@link #setNonFilteredFileExtensions(List)} is
+     * cheaper, the first block of every filtered file being read otherwise.
+     *
+     * @param detectBinaryFiles {@code true} to look at the content of the filtered files
+     * @since 4.0.0-beta-2
+     */
+    public void setDetectBinaryFiles(boolean detectBinaryFiles) {
+        this.detectBinaryFiles = detectBinaryFiles;
+    }
+
     /**
      * Copy any empty directories included in the Resources.
      *
@@ -446,6 +556,13 @@ public class MavenResourcesExecution extends AbstractMavenFilteringRequest {
         mre.setUseDefaultFilterWrappers(this.isUseDefaultFilterWrappers());
         mre.setAddDefaultExcludes(this.isAddDefaultExcludes());
         mre.setSupportMultiLineFiltering(this.isSupportMultiLineFiltering());
+        mre.setExpressionCache(this.getExpressionCache());
+        mre.setSegmentCache(this.getSegmentCache());
+        mre.setMetrics(this.getMetrics());
+        mre.setFilteringListener(this.getFilteringListener());
+        mre.setParallelism(this.getParallelism());
+        mre.setManifestFile(this.getManifestFile());
+        mre.setDetectBinaryFiles(this.isDetectBinaryFiles());
         return mre;
     }
 
@@ -18,7 +18,6 @@
  */
 package org.apache.maven.shared.filtering;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Set;
@@ -77,10 +76,20 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
 
     private final boolean supportMultiLineFiltering;
 
-    private static final int MAXIMUM_BUFFER_SIZE = 8192;
-
     private boolean eof = false;
 
+    /**
+     * The delimiters and escape string compiled, either given or lazily computed.
+     */
+    private DelimiterMatcher delimiterMatcher;
+
+    private final Lookahead lookahead;
+
+    /**
+     * reused for every token
+     */
+    private final StringBuilder key = new StringBuilder();
+
     /**
      * This constructor uses default begin token ${ and default end token }.
      *
@@ -101,8 +110,10 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
      */
     public MultiDelimiterInterpolatorFilterReaderLineEnding(
             Reader in, Interpolator interpolator, RecursionInterceptor ri, boolean supportMultiLineFiltering) {
-        // wrap our own buffer, so we can use mark/reset safely.
-        super(new BufferedReader(in, MAXIMUM_BUFFER_SIZE));
+        super(in);
+
+        // our own buffer, so we can peek and roll back safely.
+        this.lookahead = new Lookahead(in);
 
         this.interpolator = interpolator;
 
@@ -123,6 +134,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
      * @return true/false.
      */
     public boolean removeDelimiterSpec(String delimiterSpec) {
+        delimiterMatcher = null;
         return delimiters.remove(DelimiterSpecification.parse(delimiterSpec));
     }
 
@@ -131,6 +143,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
      * @return {@link MultiDelimiterInterpolatorFilterReaderLineEnding}
      */
     public AbstractFilterReaderLineEnding setDelimiterSpecs(Set<String> specs) {
+        delimiterMatcher = null;
         delimiters.clear();
         for (String spec : specs) {
             delimiters.add(DelimiterSpecification.parse(spec));
@@ -175,18 +188,56 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
      */
     @Override
     public int read(char[] cbuf, int off, int len) throws IOException {
-        for (int i = 0; i < len; i++) {
+        int n = 0;
+        while (n < len) {
+            // drain pending replacement text in one go
+            if (replaceIndex > 0) {
+                int start = replaceData.length() - replaceIndex;
+                int count = Math.min(replaceIndex, len - n);
+                replaceData.getChars(start, start + count, cbuf, off + n);
+                replaceIndex -= count;
+                n += count;
+                continue;
+            }
+            if (eof) {
+                break;
+            }
+
+            // copy the run of characters which cannot start an escape string or a begin token as is
+            int run = lookahead.read(cbuf, off + n, len - n, getDelimiterMatcher());
+            if (run == -1) {
+                break;
+            }
+            n += run;
+            if (run > 0) {
+                continue;
+            }
+
+            // a candidate token, let the character based parsing decide
             int ch = read();
             if (ch == -1) {
-                if (i == 0) {
-                    return -1;
-                } else {
-                    return i;
-                }
+                break;
             }
-            cbuf[off + i] = (char) ch;
+            cbuf[off + n++] = (char) ch;
+        }
+        return n == 0 && len > 0 ? -1 : n;
+    }
+
+    /**
+     * Use a matcher compiled once for all the readers sharing the same delimiters, escape string and multi line
+     * setting. Must be called after these have been configured.
+     *
+     * @param delimiterMatcher the compiled delimiters
+     */
+    void setDelimiterMatcher(DelimiterMatcher delimiterMatcher) {
+        this.delimiterMatcher = delimiterMatcher;
+    }
+
+    private DelimiterMatcher getDelimiterMatcher() {
+        if (delimiterMatcher == null) {
+            delimiterMatcher = new DelimiterMatcher(delimiters, getEscapeString(), supportMultiLineFiltering);
         }
-        return len;
+        return delimiterMatcher;
     }
 
     /**
@@ -204,16 +255,21 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
             return -1;
         }
 
-        BoundedReader in = new BoundedReader(this.in, markLength);
+        Lookahead in = lookahead;
+        in.mark(markLength);
 
-        int ch = in.read();
+        int ch = in.peek();
         if (ch == -1 || (ch == '\n' && !supportMultiLineFiltering)) {
+            in.commit();
             return ch;
         }
 
         boolean inEscape = useEscape && ch == getEscapeString().charAt(0);
 
-        StringBuilder key = new StringBuilder();
+        StringBuilder key = this.key;
+        key.setLength(0);
+
+        boolean escapeMismatch = false;
 
         // have we found an escape string?
         if (inEscape) {
@@ -224,44 +280,34 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
                     // mismatch, EOF or EOL, no escape string here
                     in.reset();
                     inEscape = false;
+                    escapeMismatch = true;
                     key.setLength(0);
                     break;
                 }
 
-                ch = in.read();
+                ch = in.peek();
             }
         }
 
         // have we found a delimiter?
-        int max = 0;
-        for (DelimiterSpecification spec : delimiters) {
-            String begin = spec.getBegin();
-
-            // longest match wins
-            if (begin.length() < max) {
-                continue;
-            }
-
-            for (int i = 0; i < begin.length(); i++) {
-                if (ch != begin.charAt(i) || ch == '\n' && !supportMultiLineFiltering) {
-                    // mismatch, EOF or EOL, no match
-                    break;
-                }
-
-                if (i == begin.length() - 1) {
-
+        if (escapeMismatch) {
+            matchDelimitersAfterEscapeMismatch(in, ch);
+        } else {
+            for (DelimiterSpecification spec : getDelimiterMatcher().candidates(ch)) {
+                in.reset();
+                in.skip(key.length());
+                if (matches(in, spec.getBegin())) {
                     beginToken = spec.getBegin();
                     endToken = spec.getEnd();
+                    break;
                 }
-
-                ch = in.read();
             }
-
-            in.reset();
-            in.skip(key.length());
-            ch = in.read();
         }
 
+        in.reset();
+        in.skip(key.length());
+        ch = in.peek();
+
         // escape means no luck, prevent parsing of the escaped character, and return
         if (inEscape) {
 
@@ -279,6 +325,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
             replaceData = key.toString();
             replaceIndex = key.length();
 
+            in.commit();
             return read();
         }
 
@@ -294,7 +341,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
         key.append(beginToken);
         in.reset();
         in.skip(beginToken.length());
-        ch = in.read();
+        ch = in.peek();
 
         int endTokenSize = endToken.length();
         int end = endTokenSize;
@@ -318,7 +365,7 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
                 end = endTokenSize;
             }
 
-            ch = in.read();
+            ch = in.peek();
         } while (true);
 
         // reset back to no tokens
@@ -355,9 +402,41 @@ public class MultiDelimiterInterpolatorFilterReaderLineEnding extends AbstractFi
         if (ch == -1) {
             eof = true;
         }
+        in.commit();
         return read();
     }
 
+    /**
+     * Walks all the delimiters the way it has always been done after a partial escape string: the first
+     * specification is compared starting with the character which did not match the escape string.
+     */
+    private void matchDelimitersAfterEscapeMismatch(Lookahead in, int ch) throws IOException {
+        for (DelimiterSpecification spec : delimiters) {
+            String begin = spec.getBegin();
+            for (int i = 0; i < begin.length(); i++) {
+                if (ch != begin.charAt(i) || ch == '\n' && !supportMultiLineFiltering) {
+                    break;
+                }
+                if (i == begin.length() - 1) {
+                    beginToken = spec.getBegin();
+                    endToken = spec.getEnd();
+                }
+                ch = in.peek();
+            }
+            in.reset();
+            ch = in.peek();
+        }
+    }
+
+    private static boolean matches(Lookahead in, String token) throws IOException {
+        for (int i = 0; i < token.length(); i++) {
+            if (in.peek() != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @return interpolate with prefix pattern {@code true} (active) {@code false} otherwise.
      */
@@ -0,0 +1,677 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The outputs of the previous execution of the same resources, to tell which files would be copied again exactly as
+ * they were. For each destination file are recorded the size, the modification time and the content hash of its source
+ * and of itself, and how it was copied. For the filtered files, the configuration of the filter wrappers is recorded as
+ * well, with an index of the expressions each file references: the values of the expressions are resolved again once
+ * per execution, and a filtered file is up to date as long as the configuration and the values of its own expressions
+ * have not changed.
+ * <p>
+ * The sources a filtered copy left unchanged without resolving any expression are known, by content hash and encoding,
+ * to be copied as is by the same wrappers: they are then copied without being decoded, as are the sources which cannot
+ * hold a token, ASCII sources without any character starting a token of the wrappers.
+ * <p>
+ * A file whose sizes and modification times are unchanged is up to date without being opened. Its content hash is
+ * only checked if a modification time has changed, or if the source could have been modified within the granularity of
+ * the modification times when it was copied.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class OutputManifest {
+
+    private static final int MAGIC = 0x4d52464d;
+
+    private static final int VERSION = 2;
+
+    /**
+     * The granularity of the modification times of the coarsest file systems, in milliseconds.
+     */
+    private static final long TIME_GRANULARITY = 2000;
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final Path file;
+
+    private final List<FilterWrapper> wrappers;
+
+    /**
+     * The configurations of the wrappers, {@code null} if any is unknown.
+     */
+    private final List<String> configurations;
+
+    /**
+     * The outputs of the previous execution which may still be up to date, by destination.
+     */
+    private final Map<String, Output> previous;
+
+    /**
+     * The outputs of this execution, by destination.
+     */
+    private final ConcurrentMap<String, Output> current = new ConcurrentHashMap<>();
+
+    /**
+     * The wrappers as a pipeline, {@code null} if the characters starting their tokens are not known.
+     */
+    private final FilterPipeline pipeline;
+
+    /**
+     * The contents and encodings of the sources the wrappers copy as is.
+     */
+    private final Set<String> expressionFree = ConcurrentHashMap.newKeySet();
+
+    private OutputManifest(
+            Path file, List<FilterWrapper> wrappers, List<String> configurations, Map<String, Output> previous) {
+        this.file = file;
+        this.wrappers = wrappers;
+        this.configurations = configurations;
+        this.previous = previous;
+        this.pipeline = configurations == null ? null : FilterPipeline.of(wrappers.toArray(new FilterWrapper[0]));
+        for (Output output : previous.values()) {
+            if (output.isExpressionFree()) {
+                expressionFree.add(contentKey(output.sourceHash, output.encoding));
+            }
+        }
+    }
+
+    /**
+     * @param file the manifest, which may not exist yet
+     * @param wrappers the filter wrappers of this execution
+     * @return the outputs recorded by the previous execution, none if the manifest cannot be read
+     */
+    static OutputManifest load(Path file, List<FilterWrapper> wrappers) {
+        List<String> configurations = new ArrayList<>(wrappers.size());
+        for (FilterWrapper wrapper : wrappers) {
+            configurations.add(RecordingFilterWrapper.configurationOf(wrapper));
+        }
+        if (configurations.contains(null)) {
+            configurations = null;
+        }
+
+        Map<String, Output> previous = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("unknown format");
+            }
+            int wrapperCount = in.readInt();
+            List<String> previousConfigurations = new ArrayList<>(wrapperCount);
+            for (int i = 0; i < wrapperCount; i++) {
+                previousConfigurations.add(readString(in));
+            }
+            boolean sameConfigurations = previousConfigurations.equals(configurations);
+
+            int outputCount = in.readInt();
+            String[] destinations = new String[outputCount];
+            Output[] outputs = new Output[outputCount];
+            for (int i = 0; i < outputCount; i++) {
+                destinations[i] = readString(in);
+                outputs[i] = Output.read(in, wrapperCount);
+            }
+
+            // the reverse index: each expression, its value and the outputs referencing it
+            boolean[] changed = new boolean[outputCount];
+            for (int i = 0; i < wrapperCount; i++) {
+                for (int j = in.readInt(); j > 0; j--) {
+                    String expression = readString(in);
+                    String value = readString(in);
+                    boolean same = sameConfigurations && isSameValue(wrappers.get(i), expression, value);
+                    for (int k = in.readInt(); k > 0; k--) {
+                        int index = in.readInt();
+                        outputs[index].expressions.get(i).put(expression, value);
+                        changed[index] |= !same;
+                    }
+                }
+            }
+
+            for (int i = 0; i < outputCount; i++) {
+                if (!outputs[i].filtering || (sameConfigurations && outputs[i].expressions != null && !changed[i])) {
+                    previous.put(destinations[i], outputs[i]);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // first execution
+        } catch (IOException | RuntimeException e) {
+            // everything is copied again and the manifest rewritten
+            previous.clear();
+        }
+        return new OutputManifest(file, wrappers, configurations, previous);
+    }
+
+    private static boolean isSameValue(FilterWrapper wrapper, String expression, String value) {
+        try {
+            return value.equals(((RecordingFilterWrapper) wrapper).resolve(expression));
+        } catch (IllegalArgumentException e) {
+            // the filtering of the files would fail as well
+            return false;
+        }
+    }
+
+    /**
+     * Tells if a file would be copied again exactly as it was by the previous execution and, if so, records it as an
+     * output of this execution.
+     *
+     * @param source the file to copy
+     * @param destination where to copy it
+     * @param filtering whether the file is filtered
+     * @param encoding the encoding of the file
+     * @return {@code true} if the destination is up to date
+     * @throws IOException if the files cannot be read
+     */
+    boolean isUpToDate(Path source, Path destination, boolean filtering, String encoding) throws IOException {
+        String key = key(destination);
+        Output output = previous.get(key);
+        if (output == null
+                || !output.source.equals(key(source))
+                || output.filtering != filtering
+                || !Objects.equals(output.encoding, encoding)) {
+            return false;
+        }
+
+        long checkedAt = System.currentTimeMillis();
+        BasicFileAttributes sourceAttributes = Files.readAttributes(source, BasicFileAttributes.class);
+        long sourceModified = sourceAttributes.lastModifiedTime().toMillis();
+        if (sourceAttributes.size() != output.sourceSize) {
+            return false;
+        }
+        if ((sourceModified != output.sourceModified || sourceModified + TIME_GRANULARITY > output.checkedAt)
+                && !Arrays.equals(hash(source), output.sourceHash)) {
+            return false;
+        }
+
+        BasicFileAttributes destinationAttributes;
+        try {
+            destinationAttributes = Files.readAttributes(destination, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        long destinationModified = destinationAttributes.lastModifiedTime().toMillis();
+        if (destinationAttributes.size() != output.destinationSize) {
+            return false;
+        }
+        if (destinationModified != output.destinationModified
+                && !Arrays.equals(hash(destination), output.destinationHash)) {
+            return false;
+        }
+
+        if (sourceModified == output.sourceModified && destinationModified == output.destinationModified) {
+            current.put(key, output);
+        } else {
+            // the contents have just been checked
+            current.put(
+                    key,
+                    new Output(
+                            output.source,
+                            filtering,
+                            encoding,
+                            output.sourceSize,
+                            sourceModified,
+                            output.sourceHash,
+                            checkedAt,
+                            output.destinationSize,
+                            destinationModified,
+                            output.destinationHash,
+                            output.expressions));
+        }
+        return true;
+    }
+
+    /**
+     * Reads the source before it is copied, for its later modifications to be detected.
+     *
+     * @param source the file about to be copied
+     * @param filtering whether the file is filtered
+     * @param binary whether the file, though filtered, looks binary and is copied as is, referencing no expression
+     * @param encoding the encoding of the file
+     * @return the state of the source, to {@link #record(Source, Path) record} once the file is copied with
+     *         {@link Source#getFilterWrappers() its wrappers}
+     * @throws IOException if the source cannot be read
+     */
+    Source prepare(Path source, boolean filtering, boolean binary, String encoding) throws IOException {
+        long checkedAt = System.currentTimeMillis();
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        List<Map<String, String>> expressions = null;
+        List<FilterWrapper> filterWrappers = wrappers;
+        if (filtering && configurations != null) {
+            expressions = new ArrayList<>(wrappers.size());
+            filterWrappers = new ArrayList<>(wrappers.size());
+            for (FilterWrapper wrapper : wrappers) {
+                Map<String, String> values = new ConcurrentHashMap<>();
+                expressions.add(values);
+                filterWrappers.add(((RecordingFilterWrapper) wrapper).recording(values));
+            }
+        }
+
+        // the content is scanned for token starts while it is hashed, unless it is copied as is anyway
+        Charset charset = !binary && expressions != null && pipeline != null ? FilteringUtils.charset(encoding) : null;
+        boolean scanning = charset != null && ByteLevelFiltering.supports(charset, pipeline);
+        // beyond ASCII, only Latin-1 can be copied as is without being validated
+        boolean latin1 = StandardCharsets.ISO_8859_1.equals(charset);
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[FilteringUtils.COPY_BUFFER_LENGTH];
+        try (InputStream in = Files.newInputStream(source)) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, n);
+                for (int i = 0; scanning && i < n; i++) {
+                    byte b = buffer[i];
+                    if (b < 0 ? !latin1 : pipeline.isTokenStart((char) b)) {
+                        scanning = false;
+                    }
+                }
+            }
+        }
+        byte[] hash = digest.digest();
+        boolean copiedAsIs =
+                binary || expressions != null && (scanning || expressionFree.contains(contentKey(hash, encoding)));
+
+        return new Source(
+                key(source),
+                filtering,
+                encoding,
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                hash,
+                checkedAt,
+                filterWrappers,
+                expressions,
+                copiedAsIs);
+    }
+
+    /**
+     * Records a file copied by this execution.
+     *
+     * @param source the state of the source before it was copied
+     * @param destination where it was copied
+     * @throws IOException if the destination cannot be read
+     */
+    void record(Source source, Path destination) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(destination, BasicFileAttributes.class);
+        Output output = new Output(
+                source.path,
+                source.filtering,
+                source.encoding,
+                source.size,
+                source.modified,
+                source.hash,
+                source.checkedAt,
+                attributes.size(),
+                attributes.lastModifiedTime().toMillis(),
+                hash(destination),
+                source.expressions);
+        current.put(key(destination), output);
+        if (output.isExpressionFree()) {
+            expressionFree.add(contentKey(output.sourceHash, output.encoding));
+        }
+    }
+
+    /**
+     * Replaces the manifest by the outputs of this execution.
+     *
+     * @throws IOException if the manifest cannot be written
+     */
+    void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(wrappers.size());
+                for (int i = 0; i < wrappers.size(); i++) {
+                    writeString(out, configurations == null ? null : configurations.get(i));
+                }
+
+                List<Map<String, Expression>> index = new ArrayList<>(wrappers.size());
+                for (int i = 0; i < wrappers.size(); i++) {
+                    index.add(new TreeMap<>());
+                }
+                Map<String, Output> outputs = new TreeMap<>(current);
+                out.writeInt(outputs.size());
+                int outputIndex = 0;
+                for (Map.Entry<String, Output> entry : outputs.entrySet()) {
+                    Output output = entry.getValue();
+                    writeString(out, entry.getKey());
+                    output.write(out);
+                    if (output.expressions != null && configurations != null) {
+                        for (int i = 0; i < wrappers.size(); i++) {
+                            Map<String, Expression> expressions = index.get(i);
+                            for (Map.Entry<String, String> expression :
+                                    output.expressions.get(i).entrySet()) {
+                                Expression indexed = expressions.get(expression.getKey());
+                                if (indexed == null) {
+                                    indexed = new Expression(expression.getValue());
+                                    expressions.put(expression.getKey(), indexed);
+                                }
+                                indexed.outputs.add(outputIndex);
+                            }
+                        }
+                    }
+                    outputIndex++;
+                }
+
+                for (Map<String, Expression> expressions : index) {
+                    out.writeInt(expressions.size());
+                    for (Map.Entry<String, Expression> expression : expressions.entrySet()) {
+                        writeString(out, expression.getKey());
+                        writeString(out, expression.getValue().value);
+                        out.writeInt(expression.getValue().outputs.size());
+                        for (int i : expression.getValue().outputs) {
+                            out.writeInt(i);
+                        }
+                    }
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static String contentKey(byte[] hash, String encoding) {
+        return Base64.getEncoder().encodeToString(hash) + ' ' + encoding;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[FilteringUtils.COPY_BUFFER_LENGTH];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * The state of a source about to be copied.
+     */
+    static final class Source {
+
+        private final String path;
+
+        private final boolean filtering;
+
+        private final String encoding;
+
+        private final long size;
+
+        private final long modified;
+
+        private final byte[] hash;
+
+        private final long checkedAt;
+
+        private final List<FilterWrapper> filterWrappers;
+
+        private final List<Map<String, String>> expressions;
+
+        private final boolean copiedAsIs;
+
+        Source(
+                String path,
+                boolean filtering,
+                String encoding,
+                long size,
+                long modified,
+                byte[] hash,
+                long checkedAt,
+                List<FilterWrapper> filterWrappers,
+                List<Map<String, String>> expressions,
+                boolean copiedAsIs) {
+            this.path = path;
+            this.filtering = filtering;
+            this.encoding = encoding;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.checkedAt = checkedAt;
+            this.filterWrappers = filterWrappers;
+            this.expressions = expressions;
+            this.copiedAsIs = copiedAsIs;
+        }
+
+        /**
+         * @return the wrappers to copy the file with, recording the expressions it references
+         */
+        List<FilterWrapper> getFilterWrappers() {
+            return filterWrappers;
+        }
+
+        /**
+         * @return {@code true} if the file is filtered but known to be copied as is
+         */
+        boolean isCopiedAsIs() {
+            return copiedAsIs;
+        }
+    }
+
+    /**
+     * An expression of the index, with the outputs referencing it.
+     */
+    private static final class Expression {
+
+        private final String value;
+
+        private final List<Integer> outputs = new ArrayList<>();
+
+        Expression(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * A destination file, with its source as it was when copied.
+     */
+    static final class Output {
+
+        private final String source;
+
+        private final boolean filtering;
+
+        private final String encoding;
+
+        private final long sourceSize;
+
+        private final long sourceModified;
+
+        private final byte[] sourceHash;
+
+        /**
+         * When the source was last read.
+         */
+        private final long checkedAt;
+
+        private final long destinationSize;
+
+        private final long destinationModified;
+
+        private final byte[] destinationHash;
+
+        /**
+         * The expressions of each wrapper the file references, with their values, {@code null} if unknown.
+         */
+        private final List<Map<String, String>> expressions;
+
+        Output(
+                String source,
+                boolean filtering,
+                String encoding,
+                long sourceSize,
+                long sourceModified,
+                byte[] sourceHash,
+                long checkedAt,
+                long destinationSize,
+                long destinationModified,
+                byte[] destinationHash,
+                List<Map<String, String>> expressions) {
+            this.source = source;
+            this.filtering = filtering;
+            this.encoding = encoding;
+            this.sourceSize = sourceSize;
+            this.sourceModified = sourceModified;
+            this.sourceHash = sourceHash;
+            this.checkedAt = checkedAt;
+            this.destinationSize = destinationSize;
+            this.destinationModified = destinationModified;
+            this.destinationHash = destinationHash;
+            this.expressions = expressions;
+        }
+
+        /**
+         * @return {@code true} if the file was filtered as is, without any expression
+         */
+        boolean isExpressionFree() {
+            if (!filtering || expressions == null || !Arrays.equals(sourceHash, destinationHash)) {
+                return false;
+            }
+            for (Map<String, String> values : expressions) {
+                if (!values.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            writeString(out, source);
+            out.writeBoolean(filtering);
+            writeString(out, encoding);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceModified);
+            writeBytes(out, sourceHash);
+            out.writeLong(checkedAt);
+            out.writeLong(destinationSize);
+            out.writeLong(destinationModified);
+            writeBytes(out, destinationHash);
+            out.writeBoolean(expressions != null);
+        }
+
+        /**
+         * @param in the manifest
+         * @param wrapperCount the number of wrappers
+         * @return the output, whose expressions are then read from the index
+         * @throws IOException if the manifest cannot be read
+         */
+        static Output read(DataInputStream in, int wrapperCount) throws IOException {
+            return new Output(
+                    readString(in),
+                    in.readBoolean(),
+                    readString(in),
+                    in.readLong(),
+                    in.readLong(),
+                    readBytes(in),
+                    in.readLong(),
+                    in.readLong(),
+                    in.readLong(),
+                    readBytes(in),
+                    in.readBoolean() ? newExpressions(wrapperCount) : null);
+        }
+
+        private static List<Map<String, String>> newExpressions(int wrapperCount) {
+            List<Map<String, String>> expressions = new ArrayList<>(wrapperCount);
+            for (int i = 0; i < wrapperCount; i++) {
+                expressions.add(new HashMap<>());
+            }
+            return expressions;
+        }
+    }
+}
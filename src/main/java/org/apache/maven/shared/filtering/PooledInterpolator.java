@@ -0,0 +1,315 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.codehaus.plexus.interpolation.InterpolationException;
+import org.codehaus.plexus.interpolation.InterpolationPostProcessor;
+import org.codehaus.plexus.interpolation.Interpolator;
+import org.codehaus.plexus.interpolation.RecursionInterceptor;
+import org.codehaus.plexus.interpolation.ValueSource;
+
+/**
+ * A thread-safe {@link Interpolator} shared by all the readers of a {@link FilterWrapper}. Interpolators are not
+ * thread-safe, so each expression is interpolated by an instance borrowed from a pool: instances, their value sources
+ * and their cached answers are created once per thread filtering concurrently rather than once per file.
+ * <p>
+ * The inputs the readers of a file interpolate, the expressions with their delimiters, can be recorded with their
+ * values by a {@linkplain #recordingInto(Map) view} of the pool. A view of a view records into both.
+ * <p>
+ * The value sources and post processors added or removed are added to or removed from all the pooled instances, those
+ * in use doing so once given back.
+ * <p>
+ * A {@link FilteringListener} is told about each input given to {@link #interpolate(String, RecursionInterceptor)},
+ * with the first expression its value sources were asked for. The pooled instances then forget their answers after
+ * each input, so that an expression repeated in many files is looked up, and told, every time.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class PooledInterpolator implements Interpolator {
+
+    private final Function<FilteringListener, Interpolator> factory;
+
+    private final Queue<Pooled> idle;
+
+    /**
+     * The changes made to the configuration given by the factory, applied in order to every pooled instance.
+     */
+    private final List<Consumer<Interpolator>> changes;
+
+    /**
+     * Where the interpolated inputs are recorded, empty not to record them.
+     */
+    private final List<Map<String, String>> interpolated;
+
+    /**
+     * Where the interpolated inputs are counted, {@code null} not to count them.
+     */
+    private final FilteringMetrics metrics;
+
+    /**
+     * Whom to tell about the interpolated inputs, {@code null} for none.
+     */
+    private final FilteringListener listener;
+
+    private volatile boolean cacheAnswers = true;
+
+    /**
+     * @param factory creates the pooled instances, fully configured, their value sources telling the given listener,
+     *            {@code null} when there is none, about each expression they are asked for
+     * @param metrics where to count the inputs given to {@link #interpolate(String, RecursionInterceptor)},
+     *            {@code null} not to count them
+     * @param listener whom to tell about the inputs given to {@link #interpolate(String, RecursionInterceptor)},
+     *            {@code null} for none
+     */
+    PooledInterpolator(
+            Function<FilteringListener, Interpolator> factory, FilteringMetrics metrics, FilteringListener listener) {
+        this(
+                factory,
+                new ConcurrentLinkedQueue<>(),
+                new CopyOnWriteArrayList<>(),
+                Collections.emptyList(),
+                metrics,
+                listener);
+    }
+
+    private PooledInterpolator(
+            Function<FilteringListener, Interpolator> factory,
+            Queue<Pooled> idle,
+            List<Consumer<Interpolator>> changes,
+            List<Map<String, String>> interpolated,
+            FilteringMetrics metrics,
+            FilteringListener listener) {
+        this.factory = factory;
+        this.idle = idle;
+        this.changes = changes;
+        this.interpolated = interpolated;
+        this.metrics = metrics;
+        this.listener = listener;
+    }
+
+    /**
+     * @param interpolated where to record the inputs given to {@link #interpolate(String, RecursionInterceptor)}, the
+     *            method the readers use, with their values
+     * @return an interpolator sharing the pool of this one, recording what it interpolates where this one does too
+     */
+    PooledInterpolator recordingInto(Map<String, String> interpolated) {
+        List<Map<String, String>> all = new ArrayList<>(this.interpolated);
+        all.add(interpolated);
+        PooledInterpolator recording = new PooledInterpolator(factory, idle, changes, all, metrics, listener);
+        recording.cacheAnswers = cacheAnswers;
+        return recording;
+    }
+
+    private Pooled borrow() {
+        Pooled pooled = idle.poll();
+        if (pooled == null) {
+            FirstLookup lookup = listener == null ? null : new FirstLookup();
+            pooled = new Pooled(factory.apply(lookup), lookup);
+        }
+        Interpolator interpolator = pooled.interpolator;
+        for (int size = changes.size(); pooled.applied < size; pooled.applied++) {
+            changes.get(pooled.applied).accept(interpolator);
+        }
+        // a cached answer would keep the value sources from telling the expression
+        boolean cache = cacheAnswers && listener == null;
+        if (interpolator.isCacheAnswers() != cache) {
+            interpolator.setCacheAnswers(cache);
+        }
+        if (pooled.lookup != null) {
+            pooled.lookup.expression = null;
+        }
+        return pooled;
+    }
+
+    private void change(Consumer<Interpolator> change) {
+        changes.add(change);
+        // the answers may come from a value source or a post processor no longer there
+        clearAnswers();
+    }
+
+    @Override
+    public String interpolate(String input) throws InterpolationException {
+        Pooled pooled = borrow();
+        try {
+            return pooled.interpolator.interpolate(input);
+        } finally {
+            idle.offer(pooled);
+        }
+    }
+
+    @Override
+    public String interpolate(String input, RecursionInterceptor recursionInterceptor)
+            throws InterpolationException {
+        Pooled pooled = borrow();
+        String value;
+        String expression = null;
+        String expressionValue = null;
+        String valueSource = null;
+        try {
+            value = pooled.interpolator.interpolate(input, recursionInterceptor);
+            if (pooled.lookup != null) {
+                expression = pooled.lookup.expression;
+                expressionValue = pooled.lookup.value;
+                valueSource = pooled.lookup.valueSource;
+            }
+        } finally {
+            idle.offer(pooled);
+        }
+        if (metrics != null) {
+            metrics.resolved();
+        }
+        if (expression != null) {
+            listener.expressionResolved(expression, expressionValue, valueSource);
+        }
+        if (value != null) {
+            for (Map<String, String> recorded : interpolated) {
+                recorded.putIfAbsent(input, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public String interpolate(String input, String thisPrefixPattern) throws InterpolationException {
+        Pooled pooled = borrow();
+        try {
+            return pooled.interpolator.interpolate(input, thisPrefixPattern);
+        } finally {
+            idle.offer(pooled);
+        }
+    }
+
+    @Override
+    public String interpolate(String input, String thisPrefixPattern, RecursionInterceptor recursionInterceptor)
+            throws InterpolationException {
+        Pooled pooled = borrow();
+        try {
+            return pooled.interpolator.interpolate(input, thisPrefixPattern, recursionInterceptor);
+        } finally {
+            idle.offer(pooled);
+        }
+    }
+
+    @Override
+    public void addValueSource(ValueSource valueSource) {
+        change(interpolator -> interpolator.addValueSource(valueSource));
+    }
+
+    @Override
+    public void removeValuesSource(ValueSource valueSource) {
+        change(interpolator -> interpolator.removeValuesSource(valueSource));
+    }
+
+    @Override
+    public void addPostProcessor(InterpolationPostProcessor postProcessor) {
+        change(interpolator -> interpolator.addPostProcessor(postProcessor));
+    }
+
+    @Override
+    public void removePostProcessor(InterpolationPostProcessor postProcessor) {
+        change(interpolator -> interpolator.removePostProcessor(postProcessor));
+    }
+
+    @Override
+    public List<Object> getFeedback() {
+        List<Object> feedback = new ArrayList<>();
+        for (Pooled pooled : idle) {
+            @SuppressWarnings("unchecked")
+            List<Object> instanceFeedback = pooled.interpolator.getFeedback();
+            feedback.addAll(instanceFeedback);
+        }
+        return feedback;
+    }
+
+    @Override
+    public void clearFeedback() {
+        for (Pooled pooled : idle) {
+            pooled.interpolator.clearFeedback();
+        }
+    }
+
+    @Override
+    public boolean isCacheAnswers() {
+        return cacheAnswers;
+    }
+
+    @Override
+    public void setCacheAnswers(boolean cacheAnswers) {
+        this.cacheAnswers = cacheAnswers;
+    }
+
+    @Override
+    public void clearAnswers() {
+        for (Pooled pooled : idle) {
+            pooled.interpolator.clearAnswers();
+        }
+    }
+
+    /**
+     * A pooled instance, with the number of {@link #changes} applied to it.
+     */
+    private static final class Pooled {
+
+        private final Interpolator interpolator;
+
+        /**
+         * What the value sources of the instance were first asked for, {@code null} if there is no listener.
+         */
+        private final FirstLookup lookup;
+
+        private int applied;
+
+        private Pooled(Interpolator interpolator, FirstLookup lookup) {
+            this.interpolator = interpolator;
+            this.lookup = lookup;
+        }
+    }
+
+    /**
+     * Keeps the first expression the value sources of a pooled instance are asked for while it interpolates an input:
+     * the expression of the input, the others being asked for again or found in its value.
+     */
+    private static final class FirstLookup implements FilteringListener {
+
+        private String expression;
+
+        private String value;
+
+        private String valueSource;
+
+        @Override
+        public void expressionResolved(String expression, String value, String valueSource) {
+            if (this.expression == null) {
+                this.expression = expression;
+                this.value = value;
+                this.valueSource = valueSource;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * An immutable copy of the entries of a {@link Properties} whose key is a string, read without any lock, unlike the
+ * {@link java.util.Hashtable} it is taken from. The values are the strings of the properties, the other values being
+ * only kept for the property to hide the same one in another map. Keys are stored in an open-addressing table with
+ * linear probing.
+ *
+ * @since 4.0.0-beta-2
+ */
+final class PropertiesSnapshot extends AbstractMap<String, Object> {
+
+    private final String[] keys;
+
+    private final Object[] values;
+
+    private final int mask;
+
+    private final int size;
+
+    private PropertiesSnapshot(String[] keys, Object[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.mask = keys.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * @param properties the properties, may be {@code null}
+     * @return a snapshot of the properties, {@code null} if they are {@code null}
+     */
+    static PropertiesSnapshot of(Properties properties) {
+        if (properties == null) {
+            return null;
+        }
+        synchronized (properties) {
+            // at most half full
+            int capacity = Integer.highestOneBit(Math.max(properties.size(), 1) * 2 - 1) << 1;
+            String[] keys = new String[capacity];
+            Object[] values = new Object[capacity];
+            int size = 0;
+            for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+                if (entry.getKey() instanceof String) {
+                    String key = (String) entry.getKey();
+                    int index = hash(key) & (capacity - 1);
+                    while (keys[index] != null) {
+                        index = (index + 1) & (capacity - 1);
+                    }
+                    keys[index] = key;
+                    values[index] = entry.getValue();
+                    size++;
+                }
+            }
+            return new PropertiesSnapshot(keys, values, size);
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int index = hash(key) & mask;
+        String candidate;
+        while ((candidate = keys[index]) != null) {
+            if (candidate.equals(key)) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new Iterator<Map.Entry<String, Object>>() {
+                    private int index = advance(0);
+
+                    private int advance(int from) {
+                        int i = from;
+                        while (i < keys.length && keys[i] == null) {
+                            i++;
+                        }
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < keys.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<String, Object> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+                        index = advance(index + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.Map;
+
+/**
+ * A {@link FilterWrapper} able to tell what its readers depend on and to record the expressions they resolve, which
+ * the {@link OutputManifest} and the {@link SegmentCache} need to tell whether a filtered file is still up to date.
+ * Other wrappers have their files filtered again every time.
+ *
+ * @since 4.0.0-beta-2
+ */
+interface RecordingFilterWrapper {
+
+    /**
+     * Describes everything the readers of this wrapper depend on, apart from the values of the expressions they
+     * {@linkplain #recording(Map) resolve}: two wrappers with the same configuration filter the same input the same way
+     * as long as these expressions have the same values.
+     *
+     * @return the configuration, or {@code null} if unknown, in which case the files are filtered again every time
+     */
+    String getConfiguration();
+
+    /**
+     * @param expressions where the readers of the returned wrapper record the expressions they resolve, with their
+     *            delimiters, and the values they replace them with
+     * @return a wrapper filtering the same way as this one
+     */
+    FilterWrapper recording(Map<String, String> expressions);
+
+    /**
+     * @param expression an expression with its delimiters
+     * @return the value of the expression, as the readers of this wrapper replace it, recorded like theirs
+     */
+    String resolve(String expression);
+
+    /**
+     * @param wrapper any wrapper
+     * @return the configuration of the wrapper, {@code null} if it is not a {@link RecordingFilterWrapper} or if its
+     *         configuration is unknown
+     */
+    static String configurationOf(FilterWrapper wrapper) {
+        return wrapper instanceof RecordingFilterWrapper ? ((RecordingFilterWrapper) wrapper).getConfiguration() : null;
+    }
+}
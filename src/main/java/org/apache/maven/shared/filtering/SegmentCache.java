@@ -0,0 +1,391 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of how the files filtered at byte level are split into raw runs and segments around the tokens, with
+ * the filtered segments and the expressions they resolve. It is keyed by the content of the file, its charset and the
+ * configuration of the filter wrappers, so filtering again a file whose content has not changed needs no scan: the raw
+ * runs are copied and the filtered segments are spliced in between, only the segments whose expressions have changed
+ * values being filtered again.
+ * <p>
+ * The cache is used by the default filter wrappers when set on the request. Setting the same instance on several
+ * requests shares it between them, for instance for a whole session, in which case the segments are filtered again
+ * as soon as any of their expressions has another value for the request.
+ * <p>
+ * This class is thread-safe. The files are weighted by the approximate number of bytes cached for them, the least
+ * recently used ones being evicted once the maximum weight is reached. Larger files are filtered without the cache.
+ *
+ * @since 4.0.0-beta-2
+ */
+public final class SegmentCache {
+
+    /**
+     * The default maximum weight, in bytes.
+     */
+    public static final int DEFAULT_MAXIMUM_WEIGHT = 64 * 1024 * 1024;
+
+    /**
+     * Approximate weight of a part, apart from its filtered output and its expressions.
+     */
+    private static final int PART_WEIGHT = 64;
+
+    private final int maximumWeight;
+
+    /**
+     * In access order, guarded by this.
+     */
+    private final LinkedHashMap<String, Template> templates = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Create a cache of {@link #DEFAULT_MAXIMUM_WEIGHT} bytes at most.
+     */
+    public SegmentCache() {
+        this(DEFAULT_MAXIMUM_WEIGHT);
+    }
+
+    /**
+     * @param maximumWeight the maximum weight, in bytes
+     */
+    public SegmentCache(int maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight is negative");
+        }
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * @return the number of files filtered from their cached segments
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of files which had to be scanned
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of cached files
+     */
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    /**
+     * @return the maximum weight, in bytes
+     */
+    public int getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Discards all the cached files, the counters are kept.
+     */
+    public synchronized void clear() {
+        templates.clear();
+        weight = 0;
+    }
+
+    /**
+     * @param wrappers the wrappers to apply
+     * @return the cache shared by all the wrappers, or {@code null} if they do not share one or if the configuration
+     *         of any of them is unknown
+     */
+    static SegmentCache of(FilterWrapper[] wrappers) {
+        SegmentCache cache = wrappers[0].getSegmentCache();
+        if (cache == null) {
+            return null;
+        }
+        for (FilterWrapper wrapper : wrappers) {
+            if (wrapper.getSegmentCache() != cache || RecordingFilterWrapper.configurationOf(wrapper) == null) {
+                return null;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @param file a file to filter
+     * @return {@code true} if the file is small enough to be cached
+     * @throws IOException if the size of the file cannot be read
+     */
+    boolean accepts(Path file) throws IOException {
+        return Files.size(file) <= maximumWeight;
+    }
+
+    /**
+     * Filters a file at byte level, the {@link ByteLevelFiltering#supports(Charset, FilterPipeline)} condition must
+     * hold.
+     *
+     * @param content the content of the file to filter
+     * @param out where to write the filtered file
+     * @param charset the charset of the file
+     * @param pipeline the wrappers to apply
+     * @param wrappers the same wrappers, sharing this cache
+     * @return {@code true} if the file has been filtered from its cached segments
+     * @throws IOException if an IO error occurs, or if the file is not valid in the given charset
+     */
+    boolean filter(byte[] content, OutputStream out, Charset charset, FilterPipeline pipeline, FilterWrapper[] wrappers)
+            throws IOException {
+        String key = key(content, charset, wrappers);
+        Template template = get(key);
+        Template rendered;
+        if (template == null) {
+            misses.increment();
+            TemplateBuilder builder = new TemplateBuilder();
+            ByteLevelFiltering.filter(new ByteArrayInputStream(content), out, charset, pipeline, builder);
+            rendered = builder.build();
+        } else {
+            hits.increment();
+            rendered = template.render(content, out, charset, pipeline, wrappers);
+        }
+        if (rendered != null && rendered != template) {
+            put(key, rendered);
+        }
+        return template != null;
+    }
+
+    private static String key(byte[] content, Charset charset, FilterWrapper[] wrappers) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every implementation of the Java platform supports it
+            throw new IllegalStateException(e);
+        }
+        StringBuilder key = new StringBuilder(Base64.getEncoder().encodeToString(digest.digest(content)));
+        key.append(' ').append(charset.name());
+        for (FilterWrapper wrapper : wrappers) {
+            key.append('\n').append(((RecordingFilterWrapper) wrapper).getConfiguration());
+        }
+        return key.toString();
+    }
+
+    private synchronized Template get(String key) {
+        return templates.get(key);
+    }
+
+    private synchronized void put(String key, Template template) {
+        long added = template.weight + key.length() * 2L;
+        if (added > maximumWeight) {
+            return;
+        }
+        Template previous = templates.put(key, template);
+        weight += added - (previous != null ? previous.weight + key.length() * 2L : 0);
+        Iterator<Map.Entry<String, Template>> eldest = templates.entrySet().iterator();
+        while (weight > maximumWeight) {
+            Map.Entry<String, Template> entry = eldest.next();
+            weight -= entry.getValue().weight + entry.getKey().length() * 2L;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * How a file is split, immutable.
+     */
+    private static final class Template {
+
+        private final Part[] parts;
+
+        private final long weight;
+
+        Template(Part[] parts) {
+            this.parts = parts;
+            long w = 0;
+            for (Part part : parts) {
+                w += part.weight();
+            }
+            this.weight = w;
+        }
+
+        /**
+         * @param content the content of the file
+         * @param out where to write the filtered file
+         * @param charset the charset of the file
+         * @param pipeline the wrappers to apply
+         * @param wrappers the same wrappers
+         * @return this template, or a new one if segments have been filtered again
+         * @throws IOException if an IO error occurs
+         */
+        Template render(
+                byte[] content, OutputStream out, Charset charset, FilterPipeline pipeline, FilterWrapper[] wrappers)
+                throws IOException {
+            // the current values, each expression being resolved once
+            List<Map<String, String>> values = new ArrayList<>(wrappers.length);
+            for (int i = 0; i < wrappers.length; i++) {
+                values.add(new HashMap<>());
+            }
+            Part[] rendered = parts;
+            for (int i = 0; i < parts.length; i++) {
+                Part part = parts[i];
+                if (part.output == null) {
+                    out.write(content, part.from, part.to - part.from);
+                    continue;
+                }
+                if (!part.isUpToDate(wrappers, values)) {
+                    List<Map<String, String>> expressions = new ArrayList<>();
+                    ByteBuffer encoded = ByteLevelFiltering.filterSegment(
+                            content, part.from, part.to, charset, pipeline.recording(expressions));
+                    byte[] output = new byte[encoded.remaining()];
+                    encoded.get(output);
+                    part = new Part(part.from, part.to, output, expressions);
+                    if (rendered == parts) {
+                        rendered = parts.clone();
+                    }
+                    rendered[i] = part;
+                }
+                out.write(part.output);
+            }
+            return rendered == parts ? this : new Template(rendered);
+        }
+    }
+
+    /**
+     * A raw run or a segment of a file.
+     */
+    private static final class Part {
+
+        private final int from;
+
+        private final int to;
+
+        /**
+         * The filtered segment, {@code null} for a raw run.
+         */
+        private final byte[] output;
+
+        /**
+         * For each wrapper, the expressions resolved in the segment with their values.
+         */
+        private final List<Map<String, String>> expressions;
+
+        Part(int from, int to, byte[] output, List<Map<String, String>> expressions) {
+            this.from = from;
+            this.to = to;
+            this.output = output;
+            this.expressions = expressions;
+        }
+
+        /**
+         * @param wrappers the wrappers to apply
+         * @param values for each wrapper, the values already resolved
+         * @return {@code true} if all the expressions of the segment still have the same values
+         */
+        boolean isUpToDate(FilterWrapper[] wrappers, List<Map<String, String>> values) {
+            for (int i = 0; i < wrappers.length; i++) {
+                for (Map.Entry<String, String> expression : expressions.get(i).entrySet()) {
+                    String value = values.get(i).get(expression.getKey());
+                    if (value == null) {
+                        try {
+                            value = ((RecordingFilterWrapper) wrappers[i]).resolve(expression.getKey());
+                        } catch (IllegalArgumentException e) {
+                            // left to the readers
+                            return false;
+                        }
+                        values.get(i).put(expression.getKey(), value);
+                    }
+                    if (!Objects.equals(value, expression.getValue())) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        long weight() {
+            long weight = PART_WEIGHT;
+            if (output != null) {
+                weight += output.length;
+                for (Map<String, String> resolved : expressions) {
+                    for (Map.Entry<String, String> expression : resolved.entrySet()) {
+                        weight += PART_WEIGHT + 2L * (expression.getKey().length() + expression.getValue().length());
+                    }
+                }
+            }
+            return weight;
+        }
+    }
+
+    /**
+     * Collects the parts of a file while it is filtered.
+     */
+    private static final class TemplateBuilder implements ByteLevelFiltering.Parts {
+
+        private final List<Part> parts = new ArrayList<>();
+
+        private boolean complete = true;
+
+        @Override
+        public void raw(long from, long to) {
+            Part last = parts.isEmpty() ? null : parts.get(parts.size() - 1);
+            if (last != null && last.output == null && last.to == from) {
+                // split at the end of the buffer
+                parts.set(parts.size() - 1, new Part(last.from, (int) to, null, null));
+                return;
+            }
+            parts.add(new Part((int) from, (int) to, null, null));
+        }
+
+        @Override
+        public void segment(long from, long to, byte[] output, List<Map<String, String>> expressions) {
+            parts.add(new Part((int) from, (int) to, output, expressions));
+        }
+
+        @Override
+        public void remainder(long from) {
+            complete = false;
+        }
+
+        /**
+         * @return the template, or {@code null} if the file has not been split up to its end
+         */
+        Template build() {
+            return complete ? new Template(parts.toArray(new Part[0])) : null;
+        }
+    }
+}
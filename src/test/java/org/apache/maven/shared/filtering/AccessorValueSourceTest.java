@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.codehaus.plexus.interpolation.PrefixedObjectValueSource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AccessorValueSourceTest {
+
+    private static final List<String> PREFIXES = Arrays.asList("pom", "project");
+
+    @Test
+    void resolvesTheSameValuesAsReflection() {
+        Bean root = new Bean("root", new Bean("child", null));
+        PrefixedObjectValueSource reflection = new PrefixedObjectValueSource(PREFIXES, root, true);
+        AccessorValueSource accessors = new AccessorValueSource(PREFIXES, root, true, false);
+
+        for (String expression : Arrays.asList(
+                "project.name",
+                "pom.name",
+                "name",
+                "project.child.name",
+                "project.child.child.name",
+                "project.enabled",
+                "project.values[1]",
+                "project.hidden.name",
+                "project.failing",
+                "project.unknown",
+                "project.",
+                "project..name",
+                "project.1name")) {
+            // twice, the second time with the compiled path
+            for (int i = 0; i < 2; i++) {
+                assertEquals(reflection.getValue(expression), accessors.getValue(expression), expression);
+            }
+        }
+        assertEquals("root", accessors.getValue("project.name"));
+        assertEquals("b", accessors.getValue("project.values[1]"));
+        assertEquals("child", accessors.getValue("project.hidden.name"));
+        assertNull(accessors.getValue("project.failing"));
+    }
+
+    @Test
+    void prefixIsRequiredUnlessUnprefixedExpressionsAreAllowed() {
+        AccessorValueSource accessors =
+                new AccessorValueSource(Collections.singletonList("settings"), new Bean("root", null), false, false);
+
+        assertEquals("root", accessors.getValue("settings.name"));
+        assertNull(accessors.getValue("name"));
+    }
+
+    @Test
+    void optionalValuesAreUnwrapped() {
+        Bean root = new Bean("root", null);
+
+        assertEquals("root", new AccessorValueSource(PREFIXES, root, true, true).getValue("project.optionalName"));
+        assertEquals(
+                Optional.of("root"),
+                new AccessorValueSource(PREFIXES, root, true, false).getValue("project.optionalName"));
+    }
+
+    public static class Bean {
+
+        private final String name;
+
+        private final Bean child;
+
+        Bean(String name, Bean child) {
+            this.name = name;
+            this.child = child;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Bean getChild() {
+            return child;
+        }
+
+        public boolean isEnabled() {
+            return true;
+        }
+
+        public List<String> getValues() {
+            return Arrays.asList("a", "b");
+        }
+
+        public Named getHidden() {
+            return new HiddenNamed(child == null ? name : child.getName());
+        }
+
+        public String getFailing() {
+            throw new IllegalStateException("failing");
+        }
+
+        public Optional<String> getOptionalName() {
+            return Optional.ofNullable(name);
+        }
+    }
+
+    public interface Named {
+        String getName();
+    }
+
+    private static class HiddenNamed implements Named {
+
+        private final String name;
+
+        HiddenNamed(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
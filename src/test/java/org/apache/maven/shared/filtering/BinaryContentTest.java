@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import static org.apache.maven.api.di.testing.MavenDIExtension.getBasedir;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryContentTest {
+
+    private static final Path UNIT_FILES = Paths.get(getBasedir(), "src/test/units-files");
+
+    @Test
+    void textIsNotBinary() throws Exception {
+        Path xml = UNIT_FILES.resolve("MSHARED-1213/enunciate.xml");
+        byte[] accented = "déjà ${version}".getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(BinaryContent.isBinary(xml, StandardCharsets.UTF_8));
+        assertFalse(BinaryContent.isBinary(new byte[0], StandardCharsets.UTF_8));
+        assertFalse(BinaryContent.isBinary(accented, StandardCharsets.UTF_8));
+        // text merely starting like a magic number
+        assertFalse(BinaryContent.isBinary("BZh ${version}".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        assertFalse(BinaryContent.isBinary("GIF8 ${version}".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void nulBytesAreBinaryUnlessWideCharset() {
+        byte[] utf16 = "version ${version}".getBytes(StandardCharsets.UTF_16LE);
+        assertTrue(BinaryContent.isBinary(utf16, StandardCharsets.UTF_8));
+        assertFalse(BinaryContent.isBinary(utf16, StandardCharsets.UTF_16LE));
+        assertFalse(BinaryContent.isBinary(utf16, StandardCharsets.UTF_16));
+
+        byte[] late = new byte[BinaryContent.BLOCK_SIZE + 1];
+        Arrays.fill(late, (byte) 'a');
+        late[BinaryContent.BLOCK_SIZE - 1] = 0;
+        assertTrue(BinaryContent.isBinary(late, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void magicNumbersAreBinary() throws Exception {
+        Path gif = UNIT_FILES.resolve("maven-resources-filtering/happy_duke.gif");
+        byte[] woff2 = "wOF2 and no NUL".getBytes(StandardCharsets.US_ASCII);
+
+        assertTrue(BinaryContent.isBinary(gif, StandardCharsets.UTF_8));
+        assertTrue(BinaryContent.isBinary(woff2, StandardCharsets.UTF_16));
+        assertTrue(BinaryContent.isBinary(new byte[] {'P', 'K', 3, 4, 'a'}, StandardCharsets.UTF_8));
+        assertFalse(BinaryContent.isBinary(new byte[] {'P', 'K'}, StandardCharsets.UTF_8));
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.maven.shared.filtering;
 import java.io.File;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,6 +32,7 @@ import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.api.di.Inject;
 import org.apache.maven.api.di.testing.MavenDITest;
@@ -38,12 +40,15 @@ import org.apache.maven.api.model.Build;
 import org.apache.maven.api.plugin.testing.stubs.ProjectStub;
 import org.apache.maven.di.Injector;
 import org.codehaus.plexus.interpolation.AbstractValueSource;
+import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
+import org.codehaus.plexus.interpolation.StringSearchInterpolator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.sonatype.plexus.build.incremental.BuildContext;
 
 import static org.apache.maven.api.di.testing.MavenDIExtension.getBasedir;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -194,4 +199,107 @@ class DefaultMavenFileFilterTest {
             assertEquals("toto@titi.com bar", IOUtils.toString(reader));
         }
     }
+
+    @Test
+    void interpolatorIsSharedByTheReaders() throws Exception {
+        AtomicInteger customizations = new AtomicInteger();
+        AbstractMavenFilteringRequest req = new AbstractMavenFilteringRequest();
+        Properties additionalProperties = new Properties();
+        additionalProperties.setProperty("foo", "bar");
+        req.setAdditionalProperties(additionalProperties);
+        req.setInterpolatorCustomizer(i -> customizations.incrementAndGet());
+
+        MavenFileFilter mavenFileFilter = container.getInstance(MavenFileFilter.class);
+        List<FilterWrapper> wrappers = mavenFileFilter.getDefaultFilterWrappers(req);
+
+        for (int i = 0; i < 3; i++) {
+            try (Reader reader = wrappers.get(0).getReader(new StringReader("${foo} ${foo}"))) {
+                assertEquals("bar bar", IOUtils.toString(reader));
+            }
+        }
+        assertEquals(1, customizations.get());
+    }
+
+    @Test
+    void valueSourceIsAddedToAllPooledInterpolators() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("foo", "bar");
+        PooledInterpolator interpolator = new PooledInterpolator(
+                lookups -> {
+                    StringSearchInterpolator pooled = new StringSearchInterpolator();
+                    pooled.addValueSource(new PropertiesBasedValueSource(properties));
+                    return pooled;
+                },
+                null,
+                null);
+        assertEquals("bar ${baz}", interpolator.interpolate("${foo} ${baz}"));
+
+        Properties added = new Properties();
+        added.setProperty("baz", "qux");
+        PropertiesBasedValueSource valueSource = new PropertiesBasedValueSource(added);
+        interpolator.addValueSource(valueSource);
+        assertEquals("bar qux", interpolator.interpolate("${foo} ${baz}"));
+
+        interpolator.removeValuesSource(valueSource);
+        assertEquals("bar ${baz}", interpolator.interpolate("${foo} ${baz}"));
+    }
+
+    @Test
+    void expressionCacheSharedBetweenRequests() throws Exception {
+        ExpressionCache expressionCache = new ExpressionCache();
+        AbstractMavenFilteringRequest req = new AbstractMavenFilteringRequest();
+        Properties additionalProperties = new Properties();
+        additionalProperties.setProperty("foo", "bar");
+        req.setAdditionalProperties(additionalProperties);
+        req.setExpressionCache(expressionCache);
+
+        MavenFileFilter mavenFileFilter = container.getInstance(MavenFileFilter.class);
+        for (int i = 0; i < 2; i++) {
+            List<FilterWrapper> wrappers = mavenFileFilter.getDefaultFilterWrappers(req);
+            try (Reader reader = wrappers.get(0).getReader(new StringReader("${foo} ${unknown}"))) {
+                assertEquals("bar ${unknown}", IOUtils.toString(reader));
+            }
+        }
+
+        // each expression is resolved once, the second request reuses the values
+        assertEquals(2, expressionCache.getMissCount());
+        assertTrue(expressionCache.getHitCount() >= 2);
+        assertEquals(2, expressionCache.size());
+    }
+
+    @Test
+    void segmentCacheSharedBetweenRequests() throws Exception {
+        Path from = Paths.get(getBasedir(), "target/segment-cache-test.properties");
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("key").append(i).append("=value ").append(i).append('\n');
+            expected.append("key").append(i).append("=value ").append(i).append('\n');
+            if (i % 100 == 0) {
+                content.append("version").append(i).append("=${version} @name@\n");
+                expected.append("version").append(i).append("=%1$s test\n");
+            }
+        }
+        Files.write(from, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        SegmentCache segmentCache = new SegmentCache();
+        MavenFileFilter mavenFileFilter = container.getInstance(MavenFileFilter.class);
+        for (String version : Arrays.asList("1.0", "1.0", "2.0")) {
+            AbstractMavenFilteringRequest req = new AbstractMavenFilteringRequest();
+            Properties additionalProperties = new Properties();
+            additionalProperties.setProperty("version", version);
+            additionalProperties.setProperty("name", "test");
+            req.setAdditionalProperties(additionalProperties);
+            req.setSegmentCache(segmentCache);
+
+            mavenFileFilter.copyFile(from, to, true, mavenFileFilter.getDefaultFilterWrappers(req), "UTF-8");
+
+            assertEquals(String.format(expected.toString(), version), Files.readString(to));
+        }
+
+        // the file is scanned once, then rendered from its segments
+        assertEquals(1, segmentCache.getMissCount());
+        assertEquals(2, segmentCache.getHitCount());
+        assertEquals(1, segmentCache.size());
+    }
 }
@@ -20,14 +20,18 @@ package org.apache.maven.shared.filtering;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.maven.api.di.Inject;
 import org.apache.maven.api.di.testing.MavenDITest;
 import org.apache.maven.di.Injector;
+import org.codehaus.plexus.interpolation.PropertiesBasedValueSource;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author Kristian Rosenvold
@@ -53,4 +57,35 @@ class DefaultMavenReaderFilterTest {
             assertEquals("toto@titi.com bar", IOUtils.toString(filter));
         }
     }
+
+    @Test
+    void stackedWrappersGiveTheChainedOutput() throws Exception {
+        MavenReaderFilter readerFilter = container.getInstance(MavenReaderFilter.class);
+
+        MavenResourcesExecution mre = new MavenResourcesExecution();
+        Properties additionalProperties = new Properties();
+        additionalProperties.setProperty("foo", "#bar#");
+        mre.setAdditionalProperties(additionalProperties);
+        Properties escapingProperties = new Properties();
+        escapingProperties.setProperty("bar", "%{baz}");
+        escapingProperties.setProperty("baz", "done");
+        mre.addFilerWrapperWithEscaping(new PropertiesBasedValueSource(escapingProperties), "#", "#", null, false);
+        mre.addFilerWrapperWithEscaping(new PropertiesBasedValueSource(escapingProperties), "%{", "}", null, true);
+        List<FilterWrapper> wrappers = new ArrayList<>(readerFilter.getDefaultFilterWrappers(mre));
+        wrappers.addAll(mre.getFilterWrappers());
+
+        String plain = "plain text\n".repeat(100);
+        String content = plain + "${foo} #bar# %{baz}" + plain + "#unknown\n%{baz" + plain + "${foo}";
+
+        Reader chained = new StringReader(content);
+        for (FilterWrapper wrapper : wrappers) {
+            chained = wrapper.getReader(chained);
+        }
+        String expected = IOUtils.toString(chained);
+
+        try (Reader filter = readerFilter.filter(new StringReader(content), true, wrappers)) {
+            assertEquals(expected, IOUtils.toString(filter));
+        }
+        assertTrue(expected.startsWith(plain + "done done done"));
+    }
 }
@@ -42,10 +42,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.apache.maven.api.di.testing.MavenDIExtension.getBasedir;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -111,6 +113,100 @@ class DefaultMavenResourcesFilteringTest {
         assertFiltering(initialImageFile, false, false);
     }
 
+    @Test
+    void parallelFiltering() throws Exception {
+        mavenProject.addProperty("foo", "bar");
+        mavenProject.addProperty("java.version", "zloug");
+
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+        Path initialImageFile = Paths.get(unitFilesDir, "happy_duke.gif");
+
+        Resource resource = new Resource();
+        List<Resource> resources = new ArrayList<>();
+        resources.add(resource);
+        resource.setDirectory(unitFilesDir);
+        resource.setFiltering(true);
+
+        List<String> filtersFile = new ArrayList<>();
+        filtersFile.add(
+                getBasedir() + "/src/test/units-files/maven-resources-filtering/empty-maven-resources-filtering.txt");
+
+        List<String> nonFilteredFileExtensions = Collections.singletonList("gif");
+
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution(
+                resources,
+                outputDirectory,
+                mavenProject,
+                "UTF-8",
+                filtersFile,
+                nonFilteredFileExtensions,
+                new StubSession());
+        mavenResourcesExecution.setUseDefaultFilterWrappers(true);
+        mavenResourcesExecution.setParallelism(4);
+        mavenResourcesFiltering.filterResources(mavenResourcesExecution);
+
+        assertFiltering(initialImageFile, false, false);
+    }
+
+    @Test
+    void manifestDoesNotKeepStaleOutputs() throws Exception {
+        mavenProject.addProperty("foo", "bar");
+        mavenProject.addProperty("java.version", "zloug");
+
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+        Path initialImageFile = Paths.get(unitFilesDir, "happy_duke.gif");
+        Path manifestFile = Paths.get(getBasedir(), "target/DefaultMavenResourcesFilteringTest-manifest");
+        Files.deleteIfExists(manifestFile);
+
+        Resource resource = new Resource();
+        List<Resource> resources = new ArrayList<>();
+        resources.add(resource);
+        resource.setDirectory(unitFilesDir);
+        resource.setFiltering(true);
+
+        List<String> filtersFile = new ArrayList<>();
+        filtersFile.add(
+                getBasedir() + "/src/test/units-files/maven-resources-filtering/empty-maven-resources-filtering.txt");
+
+        List<String> nonFilteredFileExtensions = Collections.singletonList("gif");
+
+        for (int i = 0; i < 2; i++) {
+            MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution(
+                    resources,
+                    outputDirectory,
+                    mavenProject,
+                    "UTF-8",
+                    filtersFile,
+                    nonFilteredFileExtensions,
+                    new StubSession());
+            mavenResourcesExecution.setUseDefaultFilterWrappers(true);
+            mavenResourcesExecution.setManifestFile(manifestFile);
+            mavenResourcesFiltering.filterResources(mavenResourcesExecution);
+
+            assertFiltering(initialImageFile, false, false);
+        }
+        assertTrue(Files.exists(manifestFile));
+
+        mavenProject.setVersion("2.0");
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution(
+                resources,
+                outputDirectory,
+                mavenProject,
+                "UTF-8",
+                filtersFile,
+                nonFilteredFileExtensions,
+                new StubSession());
+        mavenResourcesExecution.setUseDefaultFilterWrappers(true);
+        mavenResourcesExecution.setManifestFile(manifestFile);
+        mavenResourcesFiltering.filterResources(mavenResourcesExecution);
+
+        Properties result = new Properties();
+        try (InputStream in = Files.newInputStream(outputDirectory.resolve("maven-resources-filtering.txt"))) {
+            result.load(in);
+        }
+        assertEquals("2.0", result.get("version"));
+    }
+
     @Test
     void sessionFiltering() throws Exception {
 
@@ -519,6 +615,145 @@ class DefaultMavenResourcesFilteringTest {
         fail("Copying directory structure with duplicate filename includefile.txt should have failed with overwrite");
     }
 
+    @Test
+    void parallelFlattenDirectoryStructureWithoutOverride() {
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+
+        Resource resource = new Resource();
+        List<Resource> resources = new ArrayList<>();
+        resources.add(resource);
+        resource.setDirectory(unitFilesDir);
+        resource.setFiltering(true);
+        resource.addInclude("includ*");
+        resource.addInclude("**/includ*");
+
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution(
+                resources,
+                outputDirectory,
+                mavenProject,
+                "UTF-8",
+                Collections.emptyList(),
+                Collections.emptyList(),
+                new StubSession());
+        mavenResourcesExecution.setFlatten(true);
+        mavenResourcesExecution.setOverwrite(false);
+        mavenResourcesExecution.setParallelism(4);
+        try {
+            mavenResourcesFiltering.filterResources(mavenResourcesExecution);
+        } catch (MavenFilteringException e) {
+            // detected before any file is copied
+            assertFalse(Files.exists(outputDirectory.resolve("includefile.txt")));
+            return;
+        }
+        fail("Copying directory structure with duplicate filename includefile.txt should have failed with overwrite");
+    }
+
+    @Test
+    void parallelCopyReportsTheFirstFailure() throws Exception {
+        Path sourceDirectory = Paths.get(getBasedir(), "target/parallelCopyReportsTheFirstFailure");
+        IOUtils.deleteDirectory(sourceDirectory);
+        Files.createDirectories(sourceDirectory);
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(sourceDirectory.resolve("file" + i + ".txt"), "content " + i, StandardCharsets.UTF_8);
+        }
+        // a non-empty directory cannot be replaced by a file
+        for (int i : new int[] {3, 11, 17}) {
+            Path destination = outputDirectory.resolve("file" + i + ".txt");
+            Files.createDirectories(destination);
+            Files.write(destination.resolve("blocker.txt"), new byte[] {1});
+        }
+
+        Resource resource = new Resource();
+        resource.setDirectory(sourceDirectory.toString());
+        resource.addInclude("*.txt");
+
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution(
+                Collections.singletonList(resource),
+                outputDirectory,
+                mavenProject,
+                "UTF-8",
+                Collections.emptyList(),
+                Collections.emptyList(),
+                new StubSession());
+        mavenResourcesExecution.setOverwrite(true);
+        String sequential = assertThrows(
+                        MavenFilteringException.class,
+                        () -> mavenResourcesFiltering.filterResources(mavenResourcesExecution))
+                .getMessage();
+
+        mavenResourcesExecution.setParallelism(4);
+        for (int run = 0; run < 5; run++) {
+            String parallel = assertThrows(
+                            MavenFilteringException.class,
+                            () -> mavenResourcesFiltering.filterResources(mavenResourcesExecution))
+                    .getMessage();
+            assertEquals(sequential, parallel);
+        }
+    }
+
+    @Test
+    void flattenAgainWithoutOverride() throws Exception {
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+
+        Resource resource = new Resource();
+        List<Resource> resources = new ArrayList<>();
+        resources.add(resource);
+        resource.setDirectory(unitFilesDir);
+        resource.setFiltering(true);
+        resource.addInclude("includ*");
+
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution(
+                resources,
+                outputDirectory,
+                mavenProject,
+                "UTF-8",
+                Collections.emptyList(),
+                Collections.emptyList(),
+                new StubSession());
+        mavenResourcesExecution.setFlatten(true);
+        mavenResourcesExecution.setOverwrite(false);
+        mavenResourcesFiltering.filterResources(mavenResourcesExecution);
+
+        // the files left by the previous execution are not collisions
+        assertDoesNotThrow(() -> mavenResourcesFiltering.filterResources(mavenResourcesExecution));
+
+        assertEquals(1, list(outputDirectory).size());
+    }
+
+    @Test
+    void laterResourceOverwritesSameSizeFile() throws Exception {
+        Path r1 = Paths.get(getBasedir(), "target/laterResourceOverwritesSameSizeFile/r1");
+        Path r2 = Paths.get(getBasedir(), "target/laterResourceOverwritesSameSizeFile/r2");
+        Files.createDirectories(r1);
+        Files.createDirectories(r2);
+        Files.writeString(r1.resolve("config.properties"), "env=de", StandardCharsets.UTF_8);
+        Files.writeString(r2.resolve("config.properties"), "env=qa", StandardCharsets.UTF_8);
+
+        List<Resource> resources = new ArrayList<>();
+        for (Path directory : Arrays.asList(r1, r2)) {
+            Resource resource = new Resource();
+            resource.setDirectory(directory.toString());
+            resource.setTargetPath("config");
+            resources.add(resource);
+        }
+
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution(
+                resources,
+                outputDirectory,
+                mavenProject,
+                "UTF-8",
+                Collections.emptyList(),
+                Collections.emptyList(),
+                new StubSession());
+        mavenResourcesExecution.setOverwrite(false);
+        mavenResourcesFiltering.filterResources(mavenResourcesExecution);
+
+        // the last resource wins, though the file of the first one has the same size and is not older
+        assertEquals(
+                "env=qa",
+                Files.readString(outputDirectory.resolve("config/config.properties"), StandardCharsets.UTF_8));
+    }
+
     @Test
     void excludeOneFile() throws Exception {
 
@@ -946,6 +1181,42 @@ class DefaultMavenResourcesFilteringTest {
         assertEquals("1.0.txt", filename(files.get(0)));
     }
 
+    @Test
+    void filterFileNameWithoutExpression() throws Exception {
+
+        String unitFilesDir = getBasedir() + "/src/test/units-files/maven-resources-filtering";
+
+        Resource resource = new Resource();
+        resource.setDirectory(unitFilesDir);
+        resource.setFiltering(true);
+        resource.addInclude("*.txt");
+        resource.setTargetPath("testTargetPath");
+
+        MavenResourcesExecution mavenResourcesExecution = new MavenResourcesExecution(
+                Collections.singletonList(resource),
+                outputDirectory,
+                mavenProject,
+                "UTF-8",
+                Collections.emptyList(),
+                Collections.emptyList(),
+                new StubSession());
+        mavenResourcesExecution.setFilterFilenames(true);
+        mavenResourcesFiltering.filterResources(mavenResourcesExecution);
+
+        List<String> names = new ArrayList<>();
+        for (Path file : list(outputDirectory.resolve("testTargetPath"))) {
+            names.add(filename(file));
+        }
+        Collections.sort(names);
+        assertEquals(
+                Arrays.asList(
+                        "empty-maven-resources-filtering.txt",
+                        "excludefile.txt",
+                        "includefile.txt",
+                        "maven-resources-filtering.txt"),
+                names);
+    }
+
     /**
      * MRESOURCES-171: Use correct encoding when filtering properties-files
      */
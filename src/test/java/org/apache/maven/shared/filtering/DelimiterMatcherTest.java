@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.codehaus.plexus.interpolation.multi.DelimiterSpecification;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DelimiterMatcherTest {
+
+    @Test
+    void tokenStarts() {
+        DelimiterMatcher matcher = DelimiterMatcher.compile(Arrays.asList("${*}", "@", "\u00ab*\u00bb"), "\\", true);
+
+        assertTrue(matcher.isTokenStart('$'));
+        assertTrue(matcher.isTokenStart('@'));
+        assertTrue(matcher.isTokenStart('\\'));
+        assertTrue(matcher.isTokenStart('\u00ab'));
+        assertFalse(matcher.isTokenStart('{'));
+        assertFalse(matcher.isTokenStart('a'));
+        assertFalse(matcher.isTokenStart('\u00bb'));
+    }
+
+    @Test
+    void lastSpecificationIsPreferred() {
+        DelimiterMatcher matcher = DelimiterMatcher.compile(Arrays.asList("${*}", "@", "$*$"), null, true);
+
+        assertEquals(
+                Arrays.asList(DelimiterSpecification.parse("$*$"), DelimiterSpecification.parse("${*}")),
+                Arrays.asList(matcher.candidates('$')));
+        assertEquals(0, matcher.candidates('#').length);
+        assertEquals(0, matcher.candidates(-1).length);
+    }
+
+    @Test
+    void newLineBeginTokenNeedsMultiLineFiltering() {
+        DelimiterMatcher singleLine = DelimiterMatcher.compile(Collections.singleton("\n#*#"), null, false);
+        DelimiterMatcher multiLine = DelimiterMatcher.compile(Collections.singleton("\n#*#"), null, true);
+
+        assertFalse(singleLine.isTokenStart('\n'));
+        assertTrue(multiLine.isTokenStart('\n'));
+    }
+}
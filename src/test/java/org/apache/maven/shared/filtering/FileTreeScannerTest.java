@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.Scanner;
+import org.junit.jupiter.api.Test;
+
+import static org.apache.maven.api.di.testing.MavenDIExtension.getBasedir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileTreeScannerTest {
+
+    private static final Path UNIT_FILES = Paths.get(getBasedir(), "src/test/units-files");
+
+    private final MatchPatternsCache matchPatternsCache = new MatchPatternsCache();
+
+    @Test
+    void sameFilesAsDirectoryScanner() {
+        assertSameResult(null, null, false);
+        assertSameResult(null, null, true);
+        assertSameResult(new String[] {"**/*.txt"}, null, true);
+        assertSameResult(new String[] {"includ*", "**/includ*"}, null, true);
+        assertSameResult(new String[] {"maven-resources-filtering/"}, new String[] {"**/includedir/**"}, true);
+        assertSameResult(new String[] {"%regex[.*\\.properties]"}, new String[] {"MSHARED-*/**"}, false);
+        assertSameResult(null, new String[] {"**/*.txt", "edge-cases"}, true);
+    }
+
+    @Test
+    void patternsAreCompiledOnce() {
+        assertSameResult(new String[] {"**/*.txt"}, null, true);
+        int size = matchPatternsCache.size();
+        assertSameResult(new String[] {"**/*.txt"}, null, true);
+        assertEquals(size, matchPatternsCache.size());
+        assertSameResult(new String[] {"**/*.properties"}, null, true);
+        assertEquals(size + 1, matchPatternsCache.size());
+    }
+
+    @Test
+    void filesAreSortedWithTheComparator() {
+        DirectoryScanner expected = new DirectoryScanner();
+        expected.setBasedir(UNIT_FILES.toFile());
+        expected.scan();
+        List<String> expectedFiles = new ArrayList<>(Arrays.asList(expected.getIncludedFiles()));
+        expectedFiles.sort(Comparator.reverseOrder());
+        List<String> expectedDirectories = new ArrayList<>(Arrays.asList(expected.getIncludedDirectories()));
+        expectedDirectories.sort(Comparator.reverseOrder());
+
+        FileTreeScanner actual = new FileTreeScanner(UNIT_FILES, matchPatternsCache);
+        actual.setFilenameComparator(Comparator.reverseOrder());
+        actual.scan();
+
+        assertEquals(expectedFiles, Arrays.asList(actual.getIncludedFiles()));
+        assertEquals(expectedDirectories, Arrays.asList(actual.getIncludedDirectories()));
+    }
+
+    private void assertSameResult(String[] includes, String[] excludes, boolean addDefaultExcludes) {
+        DirectoryScanner expected = new DirectoryScanner();
+        expected.setBasedir(UNIT_FILES.toFile());
+        FileTreeScanner actual = new FileTreeScanner(UNIT_FILES, matchPatternsCache);
+        for (Scanner scanner : Arrays.<Scanner>asList(expected, actual)) {
+            if (includes != null) {
+                scanner.setIncludes(includes);
+            }
+            if (excludes != null) {
+                scanner.setExcludes(excludes);
+            }
+            if (addDefaultExcludes) {
+                scanner.addDefaultExcludes();
+            }
+            scanner.scan();
+        }
+
+        assertTrue(expected.getIncludedFiles().length > 0 || expected.getIncludedDirectories().length > 0);
+        assertEquals(Arrays.asList(expected.getIncludedFiles()), Arrays.asList(actual.getIncludedFiles()));
+        assertEquals(
+                Arrays.asList(expected.getIncludedDirectories()), Arrays.asList(actual.getIncludedDirectories()));
+    }
+}
@@ -19,16 +19,30 @@
 package org.apache.maven.shared.filtering;
 
 import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.MalformedInputException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
 
 import org.junit.jupiter.api.Test;
+import org.sonatype.plexus.build.incremental.BuildContext;
 
 import static org.apache.maven.api.di.testing.MavenDIExtension.getBasedir;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
 
 /**
  * @author John Casey
@@ -108,6 +122,265 @@ class FilteringUtilsTest {
                 Files.readAllLines(toFile, StandardCharsets.UTF_8));
     }
 
+    @Test
+    void copyWithoutWrappersOnlyWritesChangedContent() throws Exception {
+        Path fromFile = Paths.get(getBasedir() + "/src/test/units-files/MSHARED-1213/enunciate.xml");
+        Path toFile = TEST_DIRECTORY.resolve("MSHARED-1213-enunciate-copy.xml");
+        Files.deleteIfExists(toFile);
+        byte[] expected = Files.readAllBytes(fromFile);
+
+        FilteringUtils.copyFile(fromFile, toFile, null, null, false);
+        assertArrayEquals(expected, Files.readAllBytes(toFile));
+
+        // same content, left untouched
+        FileTime lastModified = FileTime.fromMillis(Files.getLastModifiedTime(fromFile).toMillis() + 1000);
+        Files.setLastModifiedTime(toFile, lastModified);
+        FilteringUtils.copyFile(fromFile, toFile, null, new FilterWrapper[0], false);
+        assertEquals(lastModified, Files.getLastModifiedTime(toFile));
+
+        // same size, other content
+        byte[] junk = expected.clone();
+        junk[junk.length / 2]++;
+        Files.write(toFile, junk);
+        FilteringUtils.copyFile(fromFile, toFile, null, null, false);
+        assertArrayEquals(expected, Files.readAllBytes(toFile));
+
+        // longer content, truncated
+        Files.write(toFile, Arrays.copyOf(expected, expected.length * 2));
+        FilteringUtils.copyFile(fromFile, toFile, null, null, false);
+        assertArrayEquals(expected, Files.readAllBytes(toFile));
+    }
+
+    @Test
+    void copyWithoutWrappersComparesNewerDestinationOfSameSize() throws Exception {
+        Path fromFile = TEST_DIRECTORY.resolve("overwrite-source.txt");
+        Path toFile = TEST_DIRECTORY.resolve("overwrite-destination.txt");
+        Files.writeString(fromFile, "source");
+        Files.setLastModifiedTime(fromFile, FileTime.fromMillis(2000));
+
+        // newer, other content
+        Files.writeString(toFile, "newer!");
+        Files.setLastModifiedTime(toFile, FileTime.fromMillis(3000));
+        FilteringUtils.copyFile(fromFile, toFile, null, null, false);
+        assertEquals("source", Files.readString(toFile));
+
+        // newer, same content
+        Files.setLastModifiedTime(toFile, FileTime.fromMillis(3000));
+        FilteringUtils.copyFile(fromFile, toFile, null, null, false);
+        assertEquals(FileTime.fromMillis(3000), Files.getLastModifiedTime(toFile));
+
+        // overwritten without comparing
+        FilteringUtils.copyFile(fromFile, toFile, null, null, true);
+        assertNotEquals(FileTime.fromMillis(3000), Files.getLastModifiedTime(toFile));
+
+        // older
+        Files.writeString(toFile, "older!");
+        Files.setLastModifiedTime(toFile, FileTime.fromMillis(1000));
+        FilteringUtils.copyFile(fromFile, toFile, null, null, false);
+        assertEquals("source", Files.readString(toFile));
+
+        // another size
+        Files.writeString(toFile, "newer and longer");
+        Files.setLastModifiedTime(toFile, FileTime.fromMillis(3000));
+        FilteringUtils.copyFile(fromFile, toFile, null, null, false);
+        assertEquals("source", Files.readString(toFile));
+    }
+
+    @Test
+    void copyWithoutFilteringReplacesFilteredOutputOfSameSize() throws Exception {
+        AbstractMavenFilteringRequest req = new AbstractMavenFilteringRequest();
+        Properties additionalProperties = new Properties();
+        // as long as its expression
+        additionalProperties.setProperty("env", "qa-eu1");
+        req.setAdditionalProperties(additionalProperties);
+        List<FilterWrapper> wrappers =
+                new DefaultMavenFileFilter(mock(BuildContext.class)).getDefaultFilterWrappers(req);
+
+        Path fromFile = TEST_DIRECTORY.resolve("filtered-source.properties");
+        Path toFile = TEST_DIRECTORY.resolve("filtered-destination.properties");
+        Files.writeString(fromFile, "env=${env}");
+        Files.deleteIfExists(toFile);
+
+        FilteringUtils.copyFile(fromFile, toFile, null, wrappers.toArray(new FilterWrapper[0]), false);
+        assertEquals("env=qa-eu1", Files.readString(toFile));
+
+        // the filtered output is newer and has the same size, but not the same content
+        FilteringUtils.copyFile(fromFile, toFile, null, null, false);
+        assertEquals("env=${env}", Files.readString(toFile));
+    }
+
+    @Test
+    void copyFileCollectsMetrics() throws Exception {
+        FilteringMetrics metrics = new FilteringMetrics();
+        AbstractMavenFilteringRequest req = new AbstractMavenFilteringRequest();
+        Properties additionalProperties = new Properties();
+        additionalProperties.setProperty("foo", "bar");
+        req.setAdditionalProperties(additionalProperties);
+        req.setMetrics(metrics);
+        FilterWrapper[] wrappers = new DefaultMavenFileFilter(mock(BuildContext.class))
+                .getDefaultFilterWrappers(req)
+                .toArray(new FilterWrapper[0]);
+
+        Path fromFile = TEST_DIRECTORY.resolve("metrics.txt");
+        Path filteredFile = TEST_DIRECTORY.resolve("metrics-filtered.txt");
+        Path copiedFile = TEST_DIRECTORY.resolve("metrics-copied.txt");
+        Files.writeString(fromFile, "${foo} and ${foo}");
+        Files.deleteIfExists(copiedFile);
+        FilteringUtils.copyFile(fromFile, filteredFile, "UTF-8", wrappers, false, metrics, null);
+        FilteringUtils.copyFile(fromFile, copiedFile, null, null, false, metrics, null);
+        // same content, compared
+        FilteringUtils.copyFile(fromFile, copiedFile, null, null, false, metrics, null);
+
+        assertEquals("bar and bar", Files.readString(filteredFile));
+        assertEquals(1, metrics.getFilteredFileCount());
+        assertEquals(1, metrics.getCopiedFileCount());
+        assertEquals(1, metrics.getSkippedFileCount());
+        assertEquals(2, metrics.getResolvedExpressionCount());
+        assertEquals(17 + 17 + 17, metrics.getBytesRead());
+        assertEquals(11 + 17, metrics.getBytesWritten());
+    }
+
+    @Test
+    void copyFileCountsExpressionCacheHits() throws Exception {
+        FilteringMetrics metrics = new FilteringMetrics();
+        AbstractMavenFilteringRequest req = new AbstractMavenFilteringRequest();
+        Properties additionalProperties = new Properties();
+        additionalProperties.setProperty("foo", "bar");
+        req.setAdditionalProperties(additionalProperties);
+        ExpressionCache expressionCache = new ExpressionCache();
+        req.setExpressionCache(expressionCache);
+        req.setMetrics(metrics);
+        DefaultMavenFileFilter filter = new DefaultMavenFileFilter(mock(BuildContext.class));
+
+        Path fromFile = TEST_DIRECTORY.resolve("expression-cache.txt");
+        Path toFile = TEST_DIRECTORY.resolve("expression-cache-filtered.txt");
+        Files.writeString(fromFile, "${foo}");
+        // the second wrappers find the value cached by the first ones
+        for (int i = 0; i < 2; i++) {
+            FilterWrapper[] wrappers = filter.getDefaultFilterWrappers(req).toArray(new FilterWrapper[0]);
+            FilteringUtils.copyFile(fromFile, toFile, "UTF-8", wrappers, true, metrics, null);
+        }
+
+        assertEquals("bar", Files.readString(toFile));
+        assertEquals(2, metrics.getResolvedExpressionCount());
+        assertTrue(metrics.getExpressionCacheHitCount() > 0);
+        assertEquals(expressionCache.getHitCount(), metrics.getExpressionCacheHitCount());
+        assertEquals(0, metrics.getSegmentCacheHitCount());
+    }
+
+    @Test
+    void copyFileNotifiesListener() throws Exception {
+        List<String> events = new ArrayList<>();
+        FilteringListener listener = new FilteringListener() {
+            @Override
+            public void fileStarted(Path source, Path destination, boolean filtering) {
+                events.add("started " + source.getFileName() + " filtering=" + filtering);
+            }
+
+            @Override
+            public void fileFinished(
+                    Path source,
+                    Path destination,
+                    boolean filtered,
+                    Duration duration,
+                    long bytesRead,
+                    long bytesWritten) {
+                events.add("finished " + source.getFileName() + " filtered=" + filtered + " " + bytesRead + " "
+                        + bytesWritten);
+            }
+
+            @Override
+            public void fileSkipped(Path source, Path destination) {
+                events.add("skipped " + source.getFileName());
+            }
+
+            @Override
+            public void expressionResolved(String expression, String value, String valueSource) {
+                events.add(expression + "=" + value + " from " + valueSource);
+            }
+        };
+        AbstractMavenFilteringRequest req = new AbstractMavenFilteringRequest();
+        Properties additionalProperties = new Properties();
+        additionalProperties.setProperty("foo", "bar");
+        req.setAdditionalProperties(additionalProperties);
+        req.setFilteringListener(listener);
+        FilterWrapper[] wrappers = new DefaultMavenFileFilter(mock(BuildContext.class))
+                .getDefaultFilterWrappers(req)
+                .toArray(new FilterWrapper[0]);
+
+        Path fromFile = TEST_DIRECTORY.resolve("listener.txt");
+        Path filteredFile = TEST_DIRECTORY.resolve("listener-filtered.txt");
+        Path copiedFile = TEST_DIRECTORY.resolve("listener-copied.txt");
+        Path otherFile = TEST_DIRECTORY.resolve("listener-other.txt");
+        Files.writeString(fromFile, "${foo} and ${foo}");
+        Files.writeString(otherFile, "${foo}");
+        Files.deleteIfExists(copiedFile);
+        FilteringUtils.copyFile(fromFile, filteredFile, "UTF-8", wrappers, false, null, listener);
+        // the expression is told for every file, not only the first one
+        Path otherFilteredFile = TEST_DIRECTORY.resolve("listener-other-filtered.txt");
+        FilteringUtils.copyFile(otherFile, otherFilteredFile, "UTF-8", wrappers, true, null, listener);
+        FilteringUtils.copyFile(fromFile, copiedFile, null, null, false, null, listener);
+        // same content, compared
+        FilteringUtils.copyFile(fromFile, copiedFile, null, null, false, null, listener);
+
+        assertEquals(
+                Arrays.asList(
+                        "started listener.txt filtering=true",
+                        "foo=bar from properties",
+                        "foo=bar from properties",
+                        "finished listener.txt filtered=true 17 11",
+                        "started listener-other.txt filtering=true",
+                        "foo=bar from properties",
+                        "finished listener-other.txt filtered=true 6 3",
+                        "started listener.txt filtering=false",
+                        "finished listener.txt filtered=false 17 17",
+                        "started listener.txt filtering=false",
+                        "skipped listener.txt"),
+                events);
+    }
+
+    @Test
+    void byteLevelFilteringOnlyReplacesTokens() throws Exception {
+        AbstractMavenFilteringRequest req = new AbstractMavenFilteringRequest();
+        Properties additionalProperties = new Properties();
+        additionalProperties.setProperty("foo", "b\u00e4r");
+        req.setAdditionalProperties(additionalProperties);
+        req.setEscapeString("\\");
+        List<FilterWrapper> wrappers =
+                new DefaultMavenFileFilter(mock(BuildContext.class)).getDefaultFilterWrappers(req);
+
+        // long runs of plain text, copied as is, between tokens
+        String plain = "\u00e9t\u00e9 \u20ac \ud83d\ude00 toto\n".repeat(200);
+        String content = "${foo}" + plain + "\\${foo} ${unknown} toto@titi.com @foo@" + plain + "${foo}";
+        String expected;
+        try (Reader reader = wrappers.get(0).getReader(new StringReader(content))) {
+            expected = IOUtils.toString(reader);
+        }
+
+        Path fromFile = TEST_DIRECTORY.resolve("byte-level-filtering.txt");
+        Path toFile = TEST_DIRECTORY.resolve("byte-level-filtering-filtered.txt");
+        Files.writeString(fromFile, content, StandardCharsets.UTF_8);
+        FilteringUtils.copyFile(fromFile, toFile, "UTF-8", wrappers.toArray(new FilterWrapper[0]), false);
+
+        assertEquals(expected, Files.readString(toFile, StandardCharsets.UTF_8));
+        assertTrue(expected.startsWith("b\u00e4r\u00e9t\u00e9"));
+    }
+
+    @Test
+    void byteLevelFilteringRejectsMalformedInput() throws Exception {
+        List<FilterWrapper> wrappers = new DefaultMavenFileFilter(mock(BuildContext.class))
+                .getDefaultFilterWrappers(new AbstractMavenFilteringRequest());
+
+        Path fromFile = TEST_DIRECTORY.resolve("byte-level-filtering-malformed.txt");
+        Path toFile = TEST_DIRECTORY.resolve("byte-level-filtering-malformed-filtered.txt");
+        Files.write(fromFile, new byte[] {'a', (byte) 0xC3, '$', '{', 'b', '}'});
+
+        assertThrows(
+                MalformedInputException.class,
+                () -> FilteringUtils.copyFile(
+                        fromFile, toFile, "UTF-8", wrappers.toArray(new FilterWrapper[0]), false));
+    }
+
     @Test
     void escapeWindowsPathStartingWithDrive() {
         assertEquals("C:\\\\Users\\\\Administrator", FilteringUtils.escapeWindowsPath("C:\\Users\\Administrator"));
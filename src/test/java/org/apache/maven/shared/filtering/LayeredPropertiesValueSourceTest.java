@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LayeredPropertiesValueSourceTest {
+
+    @Test
+    void firstLayerWins() {
+        Properties additional = new Properties();
+        additional.setProperty("a", "additional");
+        Map<String, String> user = new HashMap<>();
+        user.put("a", "user");
+        user.put("b", "user");
+        Properties filters = new Properties();
+        filters.setProperty("b", "filters");
+        filters.setProperty("c", "filters");
+
+        LayeredPropertiesValueSource properties = new LayeredPropertiesValueSource(additional, user, null, filters);
+
+        assertEquals("additional", properties.getValue("a"));
+        assertEquals("user", properties.getValue("b"));
+        assertEquals("filters", properties.getValue("c"));
+        assertNull(properties.getValue("d"));
+        assertEquals(new TreeSet<>(Arrays.asList("a", "b", "c")), properties.stringPropertyNames());
+    }
+
+    @Test
+    void valueWhichIsNotAStringHidesTheNextLayers() {
+        Properties additional = new Properties();
+        additional.put("a", 1);
+        Properties filters = new Properties();
+        filters.setProperty("a", "filters");
+
+        LayeredPropertiesValueSource properties = new LayeredPropertiesValueSource(additional, filters);
+
+        assertNull(properties.getValue("a"));
+        assertEquals(0, properties.stringPropertyNames().size());
+    }
+
+    @Test
+    void equalLayersGiveEqualSources() {
+        Properties filters = new Properties();
+        filters.setProperty("a", "filters");
+        Properties copy = new Properties();
+        copy.putAll(filters);
+
+        assertEquals(
+                new LayeredPropertiesValueSource(null, filters),
+                new LayeredPropertiesValueSource(copy, new Properties()));
+    }
+}
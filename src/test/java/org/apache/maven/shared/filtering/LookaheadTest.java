@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LookaheadTest {
+
+    private final Lookahead lookahead = new Lookahead(new StringReader("01234567890"));
+
+    @Test
+    void peekTillLimit() throws Exception {
+        lookahead.mark(3);
+        assertEquals('0', lookahead.peek());
+        assertEquals('1', lookahead.peek());
+        assertEquals('2', lookahead.peek());
+        assertEquals(-1, lookahead.peek());
+    }
+
+    @Test
+    void resetRollsBack() throws Exception {
+        lookahead.mark(3);
+        lookahead.peek();
+        lookahead.peek();
+        lookahead.reset();
+        assertEquals('0', lookahead.peek());
+        lookahead.skip(2);
+        assertEquals('2', lookahead.peek());
+    }
+
+    @Test
+    void commitConsumes() throws Exception {
+        lookahead.mark(3);
+        lookahead.peek();
+        lookahead.peek();
+        lookahead.commit();
+        lookahead.mark(3);
+        assertEquals('2', lookahead.peek());
+        lookahead.reset();
+        assertEquals('2', lookahead.read());
+        assertEquals('3', lookahead.read());
+    }
+
+    @Test
+    void readUntilTokenStart() throws Exception {
+        DelimiterMatcher matcher = DelimiterMatcher.compile(Collections.singleton("5*5"), null, true);
+        char[] cbuf = new char[12];
+        Arrays.fill(cbuf, 'X');
+
+        assertEquals(5, lookahead.read(cbuf, 1, 10, matcher));
+        assertEquals(0, lookahead.read(cbuf, 6, 5, matcher));
+        assertEquals('5', lookahead.read());
+        assertEquals(5, lookahead.read(cbuf, 6, 5, matcher));
+        assertEquals(-1, lookahead.read(cbuf, 0, 5, matcher));
+
+        assertEquals("X0123467890X", new String(cbuf));
+    }
+
+    @Test
+    void growsWhenLimitExceedsBuffer() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        Lookahead large = new Lookahead(new StringReader(sb.toString()));
+        large.mark(20000);
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(sb.charAt(i), large.peek());
+        }
+        assertEquals(-1, large.peek());
+        large.reset();
+        assertEquals('a', large.read());
+    }
+}
@@ -108,4 +108,26 @@ class MultiDelimiterInterpolatorFilterReaderLineEndingTest extends AbstractInter
 
         assertEquals("  url=\"jdbc:oracle:thin:@DB_SERVER:DB_PORT:DB_NAME\"", IOUtils.toString(reader));
     }
+
+    @Test
+    void bulkReadAcrossLongPlainRuns() throws Exception {
+        when(interpolator.interpolate(eq("${a}"), eq(""), isA(RecursionInterceptor.class)))
+                .thenReturn("DONE_A");
+
+        StringBuilder source = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            String plain = "line " + i + " " + "x".repeat(i % 300) + " ";
+            source.append(plain).append("${a} \\${a}\n");
+            expected.append(plain).append("DONE_A ${a}\n");
+        }
+
+        MultiDelimiterInterpolatorFilterReaderLineEnding reader =
+                new MultiDelimiterInterpolatorFilterReaderLineEnding(
+                        new StringReader(source.toString()), interpolator, true);
+        reader.setDelimiterSpecs(Collections.singleton("${*}"));
+        reader.setEscapeString("\\");
+
+        assertEquals(expected.toString(), IOUtils.toString(reader));
+    }
 }
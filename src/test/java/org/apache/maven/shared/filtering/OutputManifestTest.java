@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.apache.maven.api.di.testing.MavenDIExtension.getBasedir;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputManifestTest {
+
+    private static final String ENCODING = "UTF-8";
+
+    private final Path directory = Paths.get(getBasedir(), "target/OutputManifestTest");
+
+    private final Path manifestFile = directory.resolve("manifest");
+
+    private final Path source = directory.resolve("source.txt");
+
+    private final Path destination = directory.resolve("destination.txt");
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private final List<FilterWrapper> wrappers = Collections.singletonList(new StubWrapper());
+
+    /**
+     * The other sources, still up to date.
+     */
+    private final List<Path> existing = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+        Files.createDirectories(directory);
+        values.put("${version}", "1.0");
+        write(source, "version ${version}");
+        copy(true);
+    }
+
+    @Test
+    void unchangedFileIsUpToDate() throws IOException {
+        assertTrue(OutputManifest.load(manifestFile, wrappers).isUpToDate(source, destination, true, ENCODING));
+    }
+
+    @Test
+    void changedSourceIsCopied() throws IOException {
+        write(source, "release ${version}");
+        Files.setLastModifiedTime(source, Files.getLastModifiedTime(destination));
+
+        assertFalse(OutputManifest.load(manifestFile, wrappers).isUpToDate(source, destination, true, ENCODING));
+    }
+
+    @Test
+    void touchedSourceIsUpToDate() throws IOException {
+        Files.setLastModifiedTime(source, FileTime.fromMillis(System.currentTimeMillis() + 60000));
+
+        OutputManifest manifest = OutputManifest.load(manifestFile, wrappers);
+        assertTrue(manifest.isUpToDate(source, destination, true, ENCODING));
+        manifest.save();
+        assertTrue(OutputManifest.load(manifestFile, wrappers).isUpToDate(source, destination, true, ENCODING));
+    }
+
+    @Test
+    void changedDestinationIsCopied() throws IOException {
+        write(destination, "version 2.0");
+
+        assertFalse(OutputManifest.load(manifestFile, wrappers).isUpToDate(source, destination, true, ENCODING));
+    }
+
+    @Test
+    void changedValueOnlyAffectsFilteredFiles() throws IOException {
+        copy(false);
+        values.put("${version}", "2.0");
+
+        OutputManifest manifest = OutputManifest.load(manifestFile, wrappers);
+        assertFalse(manifest.isUpToDate(source, destination, true, ENCODING));
+        assertTrue(manifest.isUpToDate(source, destination, false, ENCODING));
+    }
+
+    @Test
+    void changedValueOnlyAffectsTheFilesReferencingIt() throws IOException {
+        values.put("${name}", "test");
+        Path other = directory.resolve("other.txt");
+        write(other, "name ${name}");
+        copy(other, destinationOf(other), true);
+        existing.add(other);
+        copy(true);
+        values.put("${version}", "2.0");
+
+        OutputManifest manifest = OutputManifest.load(manifestFile, wrappers);
+        assertFalse(manifest.isUpToDate(source, destination, true, ENCODING));
+        assertTrue(manifest.isUpToDate(other, destinationOf(other), true, ENCODING));
+    }
+
+    @Test
+    void sourceLeftAsIsIsThenCopiedAsIs() throws IOException {
+        Path plain = directory.resolve("plain.txt");
+        write(plain, "no expression but a $ and a {");
+        assertFalse(OutputManifest.load(manifestFile, wrappers)
+                .prepare(plain, true, false, ENCODING)
+                .isCopiedAsIs());
+        copy(plain, destinationOf(plain), true);
+
+        Path same = directory.resolve("same.txt");
+        write(same, "no expression but a $ and a {");
+        OutputManifest manifest = OutputManifest.load(manifestFile, wrappers);
+        assertTrue(manifest.prepare(same, true, false, ENCODING).isCopiedAsIs());
+        assertFalse(manifest.prepare(same, true, false, "ISO-8859-1").isCopiedAsIs());
+        assertFalse(manifest.prepare(source, true, false, ENCODING).isCopiedAsIs());
+    }
+
+    @Test
+    void sourceWithoutTokenStartIsCopiedAsIs() throws IOException {
+        Path plain = directory.resolve("plain.txt");
+        write(plain, "no expression at all");
+        Path latin1 = directory.resolve("latin1.txt");
+        Files.write(latin1, "d\u00e9j\u00e0".getBytes(StandardCharsets.ISO_8859_1));
+
+        OutputManifest manifest = OutputManifest.load(manifestFile, wrappers);
+        assertTrue(manifest.prepare(plain, true, false, ENCODING).isCopiedAsIs());
+        assertFalse(manifest.prepare(plain, false, false, ENCODING).isCopiedAsIs());
+        assertFalse(manifest.prepare(source, true, false, ENCODING).isCopiedAsIs());
+        assertTrue(manifest.prepare(latin1, true, false, "ISO-8859-1").isCopiedAsIs());
+        assertFalse(manifest.prepare(latin1, true, false, ENCODING).isCopiedAsIs());
+    }
+
+    @Test
+    void binarySourceIsCopiedAsIsWithoutExpression() throws IOException {
+        Path binary = directory.resolve("binary.dat");
+        write(binary, "looks like ${version}");
+        OutputManifest manifest = OutputManifest.load(manifestFile, wrappers);
+        OutputManifest.Source state = manifest.prepare(binary, true, true, ENCODING);
+        assertTrue(state.isCopiedAsIs());
+        Files.copy(binary, destinationOf(binary));
+        manifest.record(state, destinationOf(binary));
+        manifest.save();
+
+        values.put("${version}", "2.0");
+        assertTrue(OutputManifest.load(manifestFile, wrappers)
+                .isUpToDate(binary, destinationOf(binary), true, ENCODING));
+    }
+
+    @Test
+    void differentFilteringIsCopied() throws IOException {
+        OutputManifest manifest = OutputManifest.load(manifestFile, wrappers);
+        assertFalse(manifest.isUpToDate(source, destination, false, ENCODING));
+        assertFalse(manifest.isUpToDate(source, destination, true, "ISO-8859-1"));
+    }
+
+    @Test
+    void corruptManifestIsIgnored() throws IOException {
+        write(manifestFile, "not a manifest");
+
+        assertFalse(OutputManifest.load(manifestFile, wrappers).isUpToDate(source, destination, true, ENCODING));
+    }
+
+    private void copy(boolean filtering) throws IOException {
+        copy(source, destination, filtering);
+    }
+
+    private void copy(Path from, Path to, boolean filtering) throws IOException {
+        OutputManifest manifest = OutputManifest.load(manifestFile, wrappers);
+        for (Path file : existing) {
+            manifest.isUpToDate(file, destinationOf(file), true, ENCODING);
+        }
+        OutputManifest.Source state = manifest.prepare(from, filtering, false, ENCODING);
+        String content = new String(Files.readAllBytes(from), StandardCharsets.UTF_8);
+        if (filtering) {
+            RecordingFilterWrapper wrapper = (RecordingFilterWrapper) state.getFilterWrappers().get(0);
+            for (String expression : values.keySet()) {
+                if (content.contains(expression)) {
+                    content = content.replace(expression, wrapper.resolve(expression));
+                }
+            }
+        }
+        write(to, content);
+        manifest.record(state, to);
+        manifest.save();
+    }
+
+    private Path destinationOf(Path file) {
+        return file.equals(source) ? destination : directory.resolve("copy-" + file.getFileName());
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private final class StubWrapper extends FilterWrapper implements RecordingFilterWrapper {
+
+        private final Map<String, String> resolved;
+
+        StubWrapper() {
+            this(new HashMap<>());
+        }
+
+        StubWrapper(Map<String, String> resolved) {
+            this.resolved = resolved;
+        }
+
+        @Override
+        public Reader getReader(Reader fileReader) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        DelimiterMatcher getDelimiterMatcher() {
+            return DelimiterMatcher.compile(new LinkedHashSet<>(Collections.singleton("${*}")), null, false);
+        }
+
+        @Override
+        int getLookaheadLimit() {
+            return 100;
+        }
+
+        @Override
+        public String getConfiguration() {
+            return "stub";
+        }
+
+        @Override
+        public FilterWrapper recording(Map<String, String> expressions) {
+            return new StubWrapper(expressions);
+        }
+
+        @Override
+        public String resolve(String expression) {
+            String value = values.get(expression);
+            resolved.put(expression, value);
+            return value;
+        }
+    }
+}
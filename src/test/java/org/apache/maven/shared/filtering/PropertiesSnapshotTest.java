@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.shared.filtering;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PropertiesSnapshotTest {
+
+    @Test
+    void sameEntriesAsTheProperties() {
+        Properties properties = new Properties();
+        Map<String, Object> expected = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            properties.setProperty("key" + i, "value" + i);
+            expected.put("key" + i, "value" + i);
+        }
+        properties.put("number", 1);
+        expected.put("number", 1);
+        properties.put(2, "two");
+
+        PropertiesSnapshot snapshot = PropertiesSnapshot.of(properties);
+
+        assertEquals(expected, snapshot);
+        assertEquals(expected.hashCode(), snapshot.hashCode());
+        assertEquals("value42", snapshot.get("key42"));
+        assertEquals(1, snapshot.get("number"));
+        assertNull(snapshot.get("key1000"));
+        assertNull(snapshot.get(2));
+    }
+
+    @Test
+    void changesAreNotSeen() {
+        Properties properties = new Properties();
+        properties.setProperty("key", "value");
+
+        PropertiesSnapshot snapshot = PropertiesSnapshot.of(properties);
+        properties.setProperty("key", "other");
+        properties.setProperty("added", "value");
+
+        assertEquals("value", snapshot.get("key"));
+        assertNull(snapshot.get("added"));
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    void emptyAndNullProperties() {
+        assertEquals(0, PropertiesSnapshot.of(new Properties()).size());
+        assertNull(PropertiesSnapshot.of(new Properties()).get("key"));
+        assertNull(PropertiesSnapshot.of(null));
+    }
+}